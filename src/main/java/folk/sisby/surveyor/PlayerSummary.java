@@ -2,7 +2,7 @@ package folk.sisby.surveyor;
 
 import folk.sisby.surveyor.config.NetworkMode;
 import folk.sisby.surveyor.packet.S2CStructuresAddedPacket;
-import folk.sisby.surveyor.packet.S2CUpdateRegionPacket;
+import folk.sisby.surveyor.packet.S2CUpdatePalettePacket;
 import folk.sisby.surveyor.structure.WorldStructureSummary;
 import folk.sisby.surveyor.terrain.RegionSummary;
 import folk.sisby.surveyor.terrain.WorldTerrainSummary;
@@ -23,6 +23,7 @@ import net.minecraft.util.math.ChunkPos;
 import net.minecraft.util.math.Vec3d;
 import net.minecraft.world.World;
 import net.minecraft.world.gen.structure.Structure;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.BitSet;
 import java.util.HashMap;
@@ -173,6 +174,9 @@ public interface PlayerSummary {
 	class ServerPlayerEntitySummary extends PlayerEntitySummary implements PlayerSummary {
 		private final ServerPlayerExploration exploration;
 		private int viewDistance;
+		private @Nullable RegistryKey<World> paletteWorld = null;
+		private int sentBiomes = 0;
+		private int sentBlocks = 0;
 
 		public ServerPlayerEntitySummary(ServerPlayerEntity player) {
 			super(player);
@@ -199,6 +203,27 @@ public interface PlayerSummary {
 			this.viewDistance = viewDistance;
 		}
 
+		/**
+		 * Forgets which terrain palette entries the client has been sent, so they're all sent again.
+		 */
+		public synchronized void resetPalettes(@Nullable RegistryKey<World> worldKey) {
+			paletteWorld = worldKey;
+			sentBiomes = 0;
+			sentBlocks = 0;
+		}
+
+		/**
+		 * Sends the client any terrain palette entries it hasn't been sent for the world, so region packets can carry bare indices.
+		 */
+		public synchronized void syncPalettes(RegistryKey<World> worldKey, WorldTerrainSummary summary) {
+			if (!worldKey.equals(paletteWorld)) resetPalettes(worldKey);
+			S2CUpdatePalettePacket packet = summary.createPalettePacket(sentBiomes, sentBlocks);
+			if (packet == null) return;
+			packet.send(exploration.player());
+			sentBiomes = packet.biomeStart() + packet.biomes().size();
+			sentBlocks = packet.blockStart() + packet.blocks().size();
+		}
+
 		public void read(NbtCompound nbt) {
 			exploration.read(nbt.getCompound(KEY_DATA));
 		}
@@ -232,7 +257,7 @@ public interface PlayerSummary {
 						BitSet sendSet = (BitSet) bitSet.clone();
 						if (friendExploration.terrain().containsKey(worldKey) && friendExploration.terrain().get(worldKey).containsKey(regionPos)) sendSet.andNot(friendExploration.terrain().get(worldKey).get(regionPos));
 						WorldTerrainSummary summary = WorldSummary.of(player.getWorld()).terrain();
-						if (!sendSet.isEmpty() && summary != null) S2CUpdateRegionPacket.of(true, regionPos, summary.getRegion(regionPos), sendSet).send(friend);
+						if (!sendSet.isEmpty() && summary != null) summary.sendRegion(friend, true, regionPos, sendSet);
 					}
 				}
 			}
@@ -247,10 +272,9 @@ public interface PlayerSummary {
 						ChunkPos regionPos = new ChunkPos(pos.getRegionX(), pos.getRegionZ());
 						WorldTerrainSummary summary = WorldSummary.of(player.getServer().getWorld(worldKey)).terrain();
 						if (summary == null) continue;
-						RegionSummary region = summary.getRegion(regionPos);
 						BitSet sendSet = new BitSet();
 						sendSet.set(RegionSummary.bitForChunk(pos));
-						S2CUpdateRegionPacket.of(true, regionPos, region, sendSet).send(friend);
+						summary.sendRegion(friend, true, regionPos, sendSet);
 					}
 				}
 			}
@@ -4,6 +4,7 @@ import com.mojang.authlib.GameProfile;
 import folk.sisby.surveyor.config.NetworkMode;
 import folk.sisby.surveyor.packet.S2CGroupChangedPacket;
 import folk.sisby.surveyor.packet.S2CGroupUpdatedPacket;
+import folk.sisby.surveyor.util.SaveQueue;
 import net.fabricmc.fabric.api.networking.v1.PacketSender;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtElement;
@@ -36,7 +37,7 @@ public final class ServerSummary {
 	public static final UUID HOST = UUID.fromString("00000000-0000-0000-0000-000000000000");
 	private final Map<UUID, PlayerSummary> offlineSummaries;
 	private final Map<UUID, Set<UUID>> shareGroups;
-	private boolean dirty = false;
+	private volatile boolean dirty = false;
 
 	public ServerSummary(Map<UUID, PlayerSummary> offlineSummaries, @Nullable Map<UUID, Set<UUID>> shareGroups) {
 		this.offlineSummaries = offlineSummaries;
@@ -53,7 +54,7 @@ public final class ServerSummary {
 		File sharingFile = new File(folder, "sharing.dat");
 		if (sharingFile.exists()) {
 			try {
-				sharingNbt = NbtIo.readCompressed(sharingFile);
+				sharingNbt = SaveQueue.readCompressed(sharingFile);
 			} catch (IOException e) {
 				Surveyor.LOGGER.error("[Surveyor] Error loading sharing file.", e);
 			}
@@ -153,13 +154,12 @@ public final class ServerSummary {
 		}
 		File folder = Surveyor.getSavePath(World.OVERWORLD, server);
 		if (isDirty()) {
-			File sharingFile = new File(folder, "sharing.dat");
-			try {
-				NbtIo.writeCompressed(writeNbt(new NbtCompound()), sharingFile);
-				dirty = false;
-			} catch (IOException e) {
+			NbtCompound sharingNbt = writeNbt(new NbtCompound());
+			dirty = false;
+			SaveQueue.write(new File(folder, "sharing.dat"), () -> sharingNbt, e -> {
 				Surveyor.LOGGER.error("[Surveyor] Error writing sharing file.", e);
-			}
+				dirty = true;
+			});
 		}
 		if (!suppressLogs) Surveyor.LOGGER.info("[Surveyor] Finished saving server data.");
 	}
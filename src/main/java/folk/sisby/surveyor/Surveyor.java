@@ -9,6 +9,7 @@ import folk.sisby.surveyor.util.RaycastUtil;
 import it.unimi.dsi.fastutil.longs.LongSet;
 import net.fabricmc.api.ModInitializer;
 import net.fabricmc.fabric.api.command.v2.CommandRegistrationCallback;
+import net.fabricmc.fabric.api.entity.event.v1.ServerEntityWorldChangeEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerChunkEvents;
 import net.fabricmc.fabric.api.event.lifecycle.v1.ServerTickEvents;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayConnectionEvents;
@@ -96,10 +97,12 @@ public class Surveyor implements ModInitializer {
 		SurveyorNetworking.init();
 		CommandRegistrationCallback.EVENT.register(SurveyorCommands::registerCommands);
 		ServerPlayConnectionEvents.JOIN.register(ServerSummary::onPlayerJoin);
+		ServerEntityWorldChangeEvents.AFTER_PLAYER_CHANGE_WORLD.register((player, origin, destination) -> ((PlayerSummary.ServerPlayerEntitySummary) PlayerSummary.of(player)).resetPalettes(destination.getRegistryKey()));
 		ServerChunkEvents.CHUNK_LOAD.register(WorldTerrainSummary::onChunkLoad);
 		ServerChunkEvents.CHUNK_LOAD.register(WorldStructureSummary::onChunkLoad);
 		ServerChunkEvents.CHUNK_UNLOAD.register(WorldTerrainSummary::onChunkUnload);
 		ServerTickEvents.END_SERVER_TICK.register(ServerSummary::onTick);
+		ServerTickEvents.END_WORLD_TICK.register(WorldTerrainSummary::onWorldTick);
 		ServerTickEvents.END_WORLD_TICK.register((world -> {
 			if ((world.getTime() & 7) != 0) return;
 			for (ServerPlayerEntity player : world.getPlayers()) {
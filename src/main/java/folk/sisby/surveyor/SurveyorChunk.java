@@ -0,0 +1,19 @@
+package folk.sisby.surveyor;
+
+import java.util.BitSet;
+
+public interface SurveyorChunk {
+	/**
+	 * @return the X*16+Z columns with block or light changes since the chunk was last summarised.
+	 */
+	BitSet surveyor$getDirtyColumns();
+
+	/**
+	 * @return whether the whole chunk must be re-summarised - e.g. the chunk was reloaded from a packet, which doesn't mark columns.
+	 */
+	boolean surveyor$isFullyDirty();
+
+	void surveyor$markFullyDirty();
+
+	void surveyor$clearDirty();
+}
@@ -10,7 +10,6 @@ import folk.sisby.surveyor.packet.C2SKnownStructuresPacket;
 import folk.sisby.surveyor.packet.C2SKnownTerrainPacket;
 import folk.sisby.surveyor.packet.C2SPacket;
 import folk.sisby.surveyor.packet.S2CStructuresAddedPacket;
-import folk.sisby.surveyor.packet.S2CUpdateRegionPacket;
 import folk.sisby.surveyor.packet.SyncLandmarksAddedPacket;
 import folk.sisby.surveyor.packet.SyncLandmarksRemovedPacket;
 import net.fabricmc.fabric.api.networking.v1.ServerPlayNetworking;
@@ -43,6 +42,7 @@ public class SurveyorNetworking {
 
 	private static void handleKnownTerrain(ServerPlayerEntity player, ServerWorld world, WorldSummary summary, C2SKnownTerrainPacket packet) {
 		if (summary.terrain() == null || Surveyor.CONFIG.networking.terrain.atMost(NetworkMode.NONE)) return;
+		((PlayerSummary.ServerPlayerEntitySummary) PlayerSummary.of(player)).resetPalettes(world.getRegistryKey()); // The client has just loaded its summary, so may hold none of the palette
 		Map<ChunkPos, BitSet> serverBits = summary.terrain().bitSet(SurveyorExploration.ofShared(player));
 		Map<ChunkPos, BitSet> clientBits = packet.regionBits();
 		serverBits.forEach((rPos, set) -> {
@@ -50,9 +50,9 @@ public class SurveyorNetworking {
 			if (!set.isEmpty()) {
 				SurveyorExploration personalExploration = SurveyorExploration.of(player);
 				BitSet personalSet = personalExploration.limitTerrainBitset(world.getRegistryKey(), rPos, (BitSet) set.clone());
-				if (!personalSet.isEmpty()) S2CUpdateRegionPacket.of(false, rPos, summary.terrain().getRegion(rPos), personalSet).send(player);
+				if (!personalSet.isEmpty()) summary.terrain().sendRegion(player, false, rPos, personalSet);
 				set.andNot(personalSet);
-				if (!set.isEmpty() && Surveyor.CONFIG.networking.terrain.atLeast(NetworkMode.GROUP)) S2CUpdateRegionPacket.of(true, rPos, summary.terrain().getRegion(rPos), set).send(player);
+				if (!set.isEmpty() && Surveyor.CONFIG.networking.terrain.atLeast(NetworkMode.GROUP)) summary.terrain().sendRegion(player, true, rPos, set);
 			}
 		});
 	}
@@ -4,6 +4,7 @@ import folk.sisby.surveyor.config.SystemMode;
 import folk.sisby.surveyor.landmark.WorldLandmarks;
 import folk.sisby.surveyor.structure.WorldStructureSummary;
 import folk.sisby.surveyor.terrain.WorldTerrainSummary;
+import folk.sisby.surveyor.util.SaveQueue;
 import net.minecraft.world.World;
 import org.jetbrains.annotations.Nullable;
 
@@ -25,6 +26,7 @@ public record WorldSummary(@Nullable WorldTerrainSummary terrain, @Nullable Worl
 		if (disableTerrain && disableStructures && disableLandmarks) return new WorldSummary(null, null, null, isClient);
 		Surveyor.LOGGER.info("[Surveyor] Loading data for {}", world.getRegistryKey().getValue());
 		folder.mkdirs();
+		SaveQueue.flush(); // Files still being written from a previous session won't be listed yet
 		WorldTerrainSummary terrain = disableTerrain ? null : WorldTerrainSummary.load(world, folder);
 		WorldStructureSummary structures = disableStructures ? null : WorldStructureSummary.load(world, folder);
 		WorldLandmarks landmarks = disableLandmarks ? null : WorldLandmarks.load(world, folder);
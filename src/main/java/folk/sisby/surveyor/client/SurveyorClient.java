@@ -148,6 +148,9 @@ public class SurveyorClient implements ClientModInitializer {
 		ClientChunkEvents.CHUNK_UNLOAD.register((world, chunk) -> {
 			if (WorldSummary.of(world).isClient()) WorldTerrainSummary.onChunkUnload(world, chunk);
 		});
+		ClientTickEvents.END_WORLD_TICK.register((world -> {
+			if (WorldSummary.of(world).isClient()) WorldTerrainSummary.onWorldTick(world);
+		}));
 		ClientTickEvents.END_WORLD_TICK.register((world -> {
 			if (MinecraftClient.getInstance().worldRenderer.getCompletedChunkCount() <= 10 || !MinecraftClient.getInstance().worldRenderer.isTerrainRenderComplete()) return;
 			for (WorldChunk chunk : new HashSet<>(LOADING_CHUNKS.get(world.getRegistryKey()))) {
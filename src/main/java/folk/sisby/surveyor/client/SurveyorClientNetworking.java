@@ -14,6 +14,7 @@ import folk.sisby.surveyor.packet.S2CGroupChangedPacket;
 import folk.sisby.surveyor.packet.S2CGroupUpdatedPacket;
 import folk.sisby.surveyor.packet.S2CPacket;
 import folk.sisby.surveyor.packet.S2CStructuresAddedPacket;
+import folk.sisby.surveyor.packet.S2CUpdatePalettePacket;
 import folk.sisby.surveyor.packet.S2CUpdateRegionPacket;
 import folk.sisby.surveyor.packet.SyncLandmarksAddedPacket;
 import folk.sisby.surveyor.packet.SyncLandmarksRemovedPacket;
@@ -34,6 +35,7 @@ public class SurveyorClientNetworking {
 			if (!ClientPlayNetworking.canSend(p.getId())) return;
 			p.toBufs().forEach(buf -> ClientPlayNetworking.send(p.getId(), buf));
 		};
+		ClientPlayNetworking.registerGlobalReceiver(S2CUpdatePalettePacket.ID, (c, h, b, s) -> handleClient(b, S2CUpdatePalettePacket::read, SurveyorClientNetworking::handlePaletteUpdated));
 		ClientPlayNetworking.registerGlobalReceiver(S2CUpdateRegionPacket.ID, (c, h, b, s) -> handleClient(b, S2CUpdateRegionPacket::read, SurveyorClientNetworking::handleTerrainAdded));
 		ClientPlayNetworking.registerGlobalReceiver(S2CStructuresAddedPacket.ID, (c, h, b, s) -> handleClient(b, S2CStructuresAddedPacket::read, SurveyorClientNetworking::handleStructuresAdded));
 		ClientPlayNetworking.registerGlobalReceiver(S2CGroupChangedPacket.ID, (c, h, b, s) -> handleClient(b, S2CGroupChangedPacket::read, SurveyorClientNetworking::handleGroupChanged));
@@ -42,9 +44,14 @@ public class SurveyorClientNetworking {
 		ClientPlayNetworking.registerGlobalReceiver(SyncLandmarksRemovedPacket.ID, (c, h, b, s) -> handleClient(b, SyncLandmarksRemovedPacket::read, SurveyorClientNetworking::handleLandmarksRemoved));
 	}
 
+	private static void handlePaletteUpdated(ClientWorld world, WorldSummary summary, S2CUpdatePalettePacket packet) {
+		if (summary.terrain() == null) return;
+		if (!summary.terrain().readPalettePacket(packet)) Surveyor.LOGGER.error("[Surveyor] Received terrain palette entries from biome {} and block {}, past those received so far! Terrain from the server may be garbled.", packet.biomeStart(), packet.blockStart());
+	}
+
 	private static void handleTerrainAdded(ClientWorld world, WorldSummary summary, S2CUpdateRegionPacket packet) {
 		if (summary.terrain() == null) return;
-		summary.terrain().getRegion(packet.regionPos()).readUpdatePacket(world.getRegistryManager(), packet);
+		summary.terrain().readUpdatePacket(packet);
 		(packet.shared() ? SurveyorClient.getSharedExploration() : SurveyorClient.getPersonalExploration()).mergeRegion(world.getRegistryKey(), packet.regionPos(), packet.set());
 		SurveyorEvents.Invoke.terrainUpdated(world, packet.set().stream().mapToObj(i -> RegionSummary.chunkForBit(packet.regionPos(), i)).toList());
 	}
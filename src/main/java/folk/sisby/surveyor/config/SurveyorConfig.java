@@ -3,6 +3,7 @@ package folk.sisby.surveyor.config;
 import folk.sisby.kaleido.api.WrappedConfig;
 import folk.sisby.kaleido.lib.quiltconfig.api.annotations.Comment;
 import folk.sisby.kaleido.lib.quiltconfig.api.annotations.IntegerRange;
+import folk.sisby.kaleido.lib.quiltconfig.api.values.ValueMap;
 
 public class SurveyorConfig extends WrappedConfig {
 	@Comment("Terrain system - records layers of blocks and biomes for maps to render")
@@ -27,8 +28,44 @@ public class SurveyorConfig extends WrappedConfig {
 	@Comment("[Action Bar] Structure Discovery")
 	public boolean debugMode = false;
 
+	public Capture capture = new Capture();
+
+	public Storage storage = new Storage();
+
 	public Networking networking = new Networking();
 
+	public static final class Capture implements Section {
+		@Comment("Which terrain fields to record for each floor - floor depth is always recorded")
+		@Comment("Disabled fields are skipped while scanning, and aren't stored or sent to clients")
+		public boolean biome = true;
+		public boolean block = true;
+		public boolean light = true;
+		public boolean water = true;
+		public boolean glint = true;
+
+		@Comment("Per-dimension overrides of the fields above, as a comma-separated list of fields to record")
+		@Comment("e.g. \"minecraft:the_nether\" = \"biome,block\"")
+		public ValueMap<String> dimensions = ValueMap.builder("").build();
+	}
+
+	public static final class Storage implements Section {
+		@Comment("Whether to hold saved terrain in direct memory instead of on the java heap")
+		@Comment("Keeps the heap small and GC pauses short in heavily explored worlds - size direct memory with -XX:MaxDirectMemorySize")
+		public boolean offHeapTerrain = false;
+
+		@Comment("Whether to load terrain regions when they're first used, instead of all at once when the world loads")
+		public boolean lazyTerrain = true;
+
+		@Comment("How many terrain regions to keep loaded per dimension before unloading the least recently used ones")
+		@Comment("Only regions with no unsaved changes are unloaded, after each save - ignored when lazyTerrain is off")
+		@IntegerRange(min = 16, max = 65536)
+		public int loadedTerrainRegions = 512;
+
+		@Comment("Whether to memory-map terrain region files and inflate each chunk from the map whenever it's read")
+		@Comment("Makes opening a region nearly free and leaves caching to the OS, at the cost of inflating chunks on every read")
+		public boolean mappedTerrain = false;
+	}
+
 	public static final class Networking implements Section {
 		@Comment("[Server] Whether to place every player in a single share group")
 		@Comment("Disables /surveyor share and /surveyor unshare")
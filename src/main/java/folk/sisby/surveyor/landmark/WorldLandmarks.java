@@ -10,8 +10,8 @@ import folk.sisby.surveyor.config.SystemMode;
 import folk.sisby.surveyor.packet.SyncLandmarksAddedPacket;
 import folk.sisby.surveyor.packet.SyncLandmarksRemovedPacket;
 import folk.sisby.surveyor.util.MapUtil;
+import folk.sisby.surveyor.util.SaveQueue;
 import net.minecraft.nbt.NbtCompound;
-import net.minecraft.nbt.NbtIo;
 import net.minecraft.registry.RegistryKey;
 import net.minecraft.server.network.ServerPlayerEntity;
 import net.minecraft.server.world.ServerWorld;
@@ -28,7 +28,7 @@ import java.util.concurrent.ConcurrentHashMap;
 public class WorldLandmarks {
 	protected final RegistryKey<World> worldKey;
 	protected final Map<LandmarkType<?>, Map<BlockPos, Landmark<?>>> landmarks = new ConcurrentHashMap<>();
-	protected boolean dirty = false;
+	protected volatile boolean dirty = false;
 
 	public WorldLandmarks(RegistryKey<World> worldKey, Map<LandmarkType<?>, Map<BlockPos, Landmark<?>>> landmarks) {
 		this.worldKey = worldKey;
@@ -40,7 +40,7 @@ public class WorldLandmarks {
 		File landmarksFile = new File(folder, "landmarks.dat");
 		if (landmarksFile.exists()) {
 			try {
-				landmarkNbt = NbtIo.readCompressed(landmarksFile);
+				landmarkNbt = SaveQueue.readCompressed(landmarksFile);
 			} catch (IOException e) {
 				Surveyor.LOGGER.error("[Surveyor] Error loading landmarks file for {}.", world.getRegistryKey().getValue(), e);
 			}
@@ -193,13 +193,13 @@ public class WorldLandmarks {
 
 	public int save(World world, File folder) {
 		if (isDirty()) {
-			File landmarksFile = new File(folder, "landmarks.dat");
-			try {
-				NbtIo.writeCompressed(Landmarks.writeNbt(landmarks, new NbtCompound()), landmarksFile);
-				dirty = false;
-			} catch (IOException e) {
+			Map<LandmarkType<?>, Map<BlockPos, Landmark<?>>> landmarksCopy = new HashMap<>();
+			landmarks.forEach((type, map) -> landmarksCopy.put(type, new HashMap<>(map)));
+			dirty = false;
+			SaveQueue.write(new File(folder, "landmarks.dat"), () -> Landmarks.writeNbt(landmarksCopy, new NbtCompound()), e -> {
 				Surveyor.LOGGER.error("[Surveyor] Error writing landmarks file for {}.", world.getRegistryKey().getValue(), e);
-			}
+				dirty = true;
+			});
 			return landmarks.values().stream().mapToInt(Map::size).sum();
 		}
 		return 0;
@@ -2,6 +2,7 @@ package folk.sisby.surveyor.mixin;
 
 import folk.sisby.surveyor.ServerSummary;
 import folk.sisby.surveyor.SurveyorServer;
+import folk.sisby.surveyor.util.SaveQueue;
 import net.minecraft.server.MinecraftServer;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.Unique;
@@ -30,5 +31,6 @@ public class MixinMinecraftServer implements SurveyorServer {
 	private void saveSummary(boolean suppressLogs, boolean flush, boolean force, CallbackInfoReturnable<Boolean> cir) {
 		MinecraftServer self = (MinecraftServer) (Object) this;
 		surveyor$summary.save(self, force, suppressLogs);
+		if (flush) SaveQueue.flush();
 	}
 }
@@ -0,0 +1,81 @@
+package folk.sisby.surveyor.mixin;
+
+import folk.sisby.surveyor.SurveyorChunk;
+import net.minecraft.block.BlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.ChunkStatus;
+import net.minecraft.world.chunk.WorldChunk;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
+
+import java.util.BitSet;
+
+@Mixin(WorldChunk.class)
+public class MixinWorldChunk implements SurveyorChunk {
+	@Unique
+	private final BitSet surveyor$dirtyColumns = new BitSet(256);
+	@Unique
+	private boolean surveyor$fullyDirty = false;
+
+	@Override
+	public BitSet surveyor$getDirtyColumns() {
+		return surveyor$dirtyColumns;
+	}
+
+	@Override
+	public boolean surveyor$isFullyDirty() {
+		return surveyor$fullyDirty;
+	}
+
+	@Override
+	public void surveyor$markFullyDirty() {
+		surveyor$fullyDirty = true;
+	}
+
+	@Override
+	public void surveyor$clearDirty() {
+		surveyor$dirtyColumns.clear();
+		surveyor$fullyDirty = false;
+	}
+
+	@Inject(method = "setBlockState", at = @At("RETURN"))
+	public void markColumnDirty(BlockPos pos, BlockState state, boolean moved, CallbackInfoReturnable<BlockState> cir) {
+		BlockState oldState = cir.getReturnValue();
+		if (oldState == null) return; // Unchanged
+		WorldChunk self = (WorldChunk) (Object) this;
+		surveyor$dirtyColumns.set((pos.getX() & 15) * 16 + (pos.getZ() & 15));
+		int reach = oldState.getLuminance() == state.getLuminance() ? 0 : Math.max(oldState.getLuminance(), state.getLuminance()) - 1;
+		if (oldState.getOpacity(self, pos) != state.getOpacity(self, pos)) reach = 14; // Blocking or unblocking light changes it as far as full light travels
+		if (reach > 0) surveyor$markLightDirty(pos, reach);
+	}
+
+	/**
+	 * Marks every column the changed light could reach, in this chunk and its loaded neighbours, to be re-summarised.
+	 * Neighbours are looked up without loading them, as this runs inside a block change.
+	 *
+	 * @param reach the furthest distance in blocks the changed light travels.
+	 */
+	@Unique
+	private void surveyor$markLightDirty(BlockPos pos, int reach) {
+		WorldChunk self = (WorldChunk) (Object) this;
+		int x = pos.getX() & 15;
+		int z = pos.getZ() & 15;
+		for (int dx = -1; dx <= 1; dx++) {
+			for (int dz = -1; dz <= 1; dz++) {
+				SurveyorChunk chunk = dx == 0 && dz == 0 ? this : self.getWorld().getChunkManager().getChunk(self.getPos().x + dx, self.getPos().z + dz, ChunkStatus.FULL, false) instanceof SurveyorChunk neighbour ? neighbour : null;
+				if (chunk == null) continue;
+				BitSet columns = chunk.surveyor$getDirtyColumns();
+				for (int cx = 0; cx < 16; cx++) {
+					int spare = reach - Math.abs(dx * 16 + cx - x); // Light spreads by Manhattan distance
+					if (spare < 0) continue;
+					int from = Math.max(z - spare - dz * 16, 0);
+					int to = Math.min(z + spare - dz * 16, 15);
+					if (from <= to) columns.set(cx * 16 + from, cx * 16 + to + 1);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,16 @@
+package folk.sisby.surveyor.mixin.client;
+
+import folk.sisby.surveyor.SurveyorChunk;
+import net.minecraft.world.chunk.WorldChunk;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+@Mixin(WorldChunk.class)
+public class MixinClientWorldChunk {
+	@Inject(method = "loadFromPacket", at = @At("TAIL"))
+	public void markReloaded(CallbackInfo ci) {
+		((SurveyorChunk) (Object) this).surveyor$markFullyDirty();
+	}
+}
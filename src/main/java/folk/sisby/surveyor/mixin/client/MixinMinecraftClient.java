@@ -3,6 +3,7 @@ package folk.sisby.surveyor.mixin.client;
 import folk.sisby.surveyor.WorldSummary;
 import folk.sisby.surveyor.client.SurveyorClient;
 import folk.sisby.surveyor.client.SurveyorClientEvents;
+import folk.sisby.surveyor.util.SaveQueue;
 import net.minecraft.client.MinecraftClient;
 import net.minecraft.client.gui.screen.Screen;
 import net.minecraft.client.world.ClientWorld;
@@ -32,5 +33,6 @@ public class MixinMinecraftClient {
 		if (self.world != null && WorldSummary.of(self.world).isClient()) {
 			WorldSummary.of(self.world).save(self.world, SurveyorClient.getWorldSavePath(self.world), false);
 		}
+		SaveQueue.flush();
 	}
 }
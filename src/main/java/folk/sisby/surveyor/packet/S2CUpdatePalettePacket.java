@@ -0,0 +1,37 @@
+package folk.sisby.surveyor.packet;
+
+import folk.sisby.surveyor.Surveyor;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.util.Identifier;
+
+import java.util.List;
+
+/**
+ * Entries appended to the world's terrain palettes since the client was last sent them, as raw registry IDs.
+ * Sent ahead of any region packet that indexes into them, so region packets carry bare palette indices.
+ */
+public record S2CUpdatePalettePacket(int biomeStart, List<Integer> biomes, int blockStart, List<Integer> blocks) implements S2CPacket {
+	public static final Identifier ID = new Identifier(Surveyor.ID, "s2c_update_palette");
+
+	public static S2CUpdatePalettePacket read(PacketByteBuf buf) {
+		return new S2CUpdatePalettePacket(
+			buf.readVarInt(),
+			buf.readList(PacketByteBuf::readVarInt),
+			buf.readVarInt(),
+			buf.readList(PacketByteBuf::readVarInt)
+		);
+	}
+
+	@Override
+	public void writeBuf(PacketByteBuf buf) {
+		buf.writeVarInt(biomeStart);
+		buf.writeCollection(biomes, PacketByteBuf::writeVarInt);
+		buf.writeVarInt(blockStart);
+		buf.writeCollection(blocks, PacketByteBuf::writeVarInt);
+	}
+
+	@Override
+	public Identifier getId() {
+		return ID;
+	}
+}
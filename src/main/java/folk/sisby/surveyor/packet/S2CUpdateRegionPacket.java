@@ -15,7 +15,10 @@ import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 
-public record S2CUpdateRegionPacket(boolean shared, ChunkPos regionPos, List<Integer> biomePalette, List<Integer> blockPalette, BitSet set, List<ChunkSummary> chunks) implements S2CPacket {
+/**
+ * Chunks of a region, indexing into the world's terrain palettes - which are synced ahead of time by {@link S2CUpdatePalettePacket}.
+ */
+public record S2CUpdateRegionPacket(boolean shared, ChunkPos regionPos, BitSet set, List<ChunkSummary> chunks) implements S2CPacket {
 	public static final Identifier ID = new Identifier(Surveyor.ID, "s2c_update_region");
 
 	public static S2CUpdateRegionPacket of(boolean shared, ChunkPos regionPos, RegionSummary summary, BitSet keys) {
@@ -26,8 +29,6 @@ public record S2CUpdateRegionPacket(boolean shared, ChunkPos regionPos, List<Int
 		return new S2CUpdateRegionPacket(
 			buf.readBoolean(),
 			buf.readChunkPos(),
-			buf.readList(PacketByteBuf::readVarInt),
-			buf.readList(PacketByteBuf::readVarInt),
 			buf.readBitSet(),
 			buf.readCollection(ArrayList::new, ChunkSummary::new)
 		);
@@ -37,8 +38,6 @@ public record S2CUpdateRegionPacket(boolean shared, ChunkPos regionPos, List<Int
 	public void writeBuf(PacketByteBuf buf) {
 		buf.writeBoolean(shared);
 		buf.writeChunkPos(regionPos);
-		buf.writeCollection(biomePalette, PacketByteBuf::writeVarInt);
-		buf.writeCollection(blockPalette, PacketByteBuf::writeVarInt);
 		buf.writeBitSet(set);
 		buf.writeCollection(chunks, (b, summary) -> summary.writeBuf(b));
 	}
@@ -57,7 +56,7 @@ public record S2CUpdateRegionPacket(boolean shared, ChunkPos regionPos, List<Int
 				return List.of();
 			}
 			for (BitSet splitChunks : BitSetUtil.half(set)) {
-				bufs.addAll(new S2CUpdateRegionPacket(shared, regionPos, biomePalette, blockPalette, splitChunks, ListUtil.splitSet(chunks, splitChunks, set)).toBufs());
+				bufs.addAll(new S2CUpdateRegionPacket(shared, regionPos, splitChunks, ListUtil.splitSet(chunks, splitChunks, set)).toBufs());
 			}
 		}
 		return bufs;
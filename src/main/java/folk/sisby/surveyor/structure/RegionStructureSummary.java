@@ -22,6 +22,7 @@ import net.minecraft.world.gen.structure.Structure;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -32,7 +33,7 @@ public class RegionStructureSummary {
 	public static final String KEY_PIECES = "pieces";
 
 	protected final Map<RegistryKey<Structure>, Map<ChunkPos, StructureStartSummary>> structures = new ConcurrentHashMap<>();
-	protected boolean dirty = false;
+	protected volatile boolean dirty = false;
 
 	RegionStructureSummary() {
 	}
@@ -135,6 +136,15 @@ public class RegionStructureSummary {
 		return nbt;
 	}
 
+	/**
+	 * Copies the region's structure starts, so they can be written while the region changes.
+	 */
+	protected RegionStructureSummary copy() {
+		Map<RegistryKey<Structure>, Map<ChunkPos, StructureStartSummary>> copied = new HashMap<>();
+		structures.forEach((key, starts) -> copied.put(key, new HashMap<>(starts)));
+		return new RegionStructureSummary(copied);
+	}
+
 	public boolean isDirty() {
 		return dirty && Surveyor.CONFIG.structures != SystemMode.FROZEN;
 	}
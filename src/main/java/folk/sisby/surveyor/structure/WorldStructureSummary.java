@@ -12,9 +12,9 @@ import folk.sisby.surveyor.packet.S2CStructuresAddedPacket;
 import folk.sisby.surveyor.terrain.RegionSummary;
 import folk.sisby.surveyor.util.ChunkUtil;
 import folk.sisby.surveyor.util.MapUtil;
+import folk.sisby.surveyor.util.SaveQueue;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtElement;
-import net.minecraft.nbt.NbtIo;
 import net.minecraft.nbt.NbtList;
 import net.minecraft.nbt.NbtString;
 import net.minecraft.registry.Registries;
@@ -50,7 +50,7 @@ public class WorldStructureSummary {
 	protected final Map<ChunkPos, RegionStructureSummary> regions = new ConcurrentHashMap<>();
 	protected final Map<RegistryKey<Structure>, RegistryKey<StructureType<?>>> structureTypes = new ConcurrentHashMap<>();
 	protected final Multimap<RegistryKey<Structure>, TagKey<Structure>> structureTags = Multimaps.synchronizedSetMultimap(HashMultimap.create());
-	protected boolean dirty = false;
+	protected volatile boolean dirty = false;
 
 	public WorldStructureSummary(RegistryKey<World> worldKey, Map<ChunkPos, RegionStructureSummary> regions, Map<RegistryKey<Structure>, RegistryKey<StructureType<?>>> structureTypes, Multimap<RegistryKey<Structure>, TagKey<Structure>> structureTags) {
 		this.worldKey = worldKey;
@@ -94,13 +94,12 @@ public class WorldStructureSummary {
 		NbtCompound worldNbt = new NbtCompound();
 		if (structuresFile.exists()) {
 			try {
-				worldNbt = NbtIo.readCompressed(structuresFile);
+				worldNbt = SaveQueue.readCompressed(structuresFile);
 			} catch (IOException e) {
 				Surveyor.LOGGER.error("[Surveyor] Error loading structure summary file for {}.", world.getRegistryKey().getValue(), e);
 			}
 		}
-		Map<ChunkPos, RegionStructureSummary> regions = new HashMap<>();
-		ChunkUtil.getRegionNbt(folder, "s").forEach((pos, nbt) -> regions.put(pos, RegionStructureSummary.readNbt(nbt)));
+		Map<ChunkPos, RegionStructureSummary> regions = ChunkUtil.readRegions(folder, "s", (pos, nbt) -> RegionStructureSummary.readNbt(nbt));
 		if (regions.isEmpty()) { // Try load legacy data
 			RegionStructureSummary worldSummary = RegionStructureSummary.readNbt(worldNbt);
 			worldSummary.structures.forEach((key, map) -> map.forEach((pos, start) -> {
@@ -206,24 +205,25 @@ public class WorldStructureSummary {
 	public int save(World world, File folder) {
 		List<ChunkPos> savedRegions = new ArrayList<>();
 		if (isDirty()) {
-			File structureFile = new File(folder, "structures.dat");
-			try {
-				NbtIo.writeCompressed(writeNbt(new NbtCompound()), structureFile);
-				dirty = false;
-			} catch (IOException e) {
-				Surveyor.LOGGER.error("[Surveyor] Error writing world structure summary file for {}.", world.getRegistryKey().getValue(), e);
+			WorldStructureSummary worldCopy;
+			synchronized (structureTags) {
+				worldCopy = new WorldStructureSummary(worldKey, Map.of(), structureTypes, structureTags);
 			}
+			dirty = false;
+			SaveQueue.write(new File(folder, "structures.dat"), () -> worldCopy.writeNbt(new NbtCompound()), e -> {
+				Surveyor.LOGGER.error("[Surveyor] Error writing world structure summary file for {}.", world.getRegistryKey().getValue(), e);
+				dirty = true;
+			});
 			regions.forEach((pos, summary) -> {
 				if (!summary.isDirty()) return;
 				savedRegions.add(pos);
-				NbtCompound regionCompound = summary.writeNbt(new NbtCompound());
+				RegionStructureSummary regionCopy = summary.copy();
+				summary.dirty = false;
 				File regionFile = new File(folder, "s.%d.%d.dat".formatted(pos.x, pos.z));
-				try {
-					NbtIo.writeCompressed(regionCompound, regionFile);
-					summary.dirty = false;
-				} catch (IOException e) {
+				SaveQueue.write(regionFile, () -> regionCopy.writeNbt(new NbtCompound()), e -> {
 					Surveyor.LOGGER.error("[Surveyor] Error writing region structure summary file {}.", regionFile.getName(), e);
-				}
+					summary.dirty = true;
+				});
 			});
 		}
 		return savedRegions.size();
@@ -0,0 +1,47 @@
+package folk.sisby.surveyor.terrain;
+
+import folk.sisby.surveyor.Surveyor;
+import folk.sisby.surveyor.config.SurveyorConfig;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.world.World;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Which fields of each floor a terrain capture records. Floor depth is always recorded.
+ * Disabled fields are left at their defaults, and chunk summaries keep the profile they were taken with,
+ * so a disabled biome or block isn't mistaken for the first palette entry.
+ */
+public record CaptureProfile(boolean biome, boolean block, boolean light, boolean water, boolean glint) {
+	public static final CaptureProfile ALL = new CaptureProfile(true, true, true, true, true);
+	public static final byte BIOME = 1;
+	public static final byte BLOCK = 1 << 1;
+	public static final byte LIGHT = 1 << 2;
+	public static final byte WATER = 1 << 3;
+	public static final byte GLINT = 1 << 4;
+
+	public static CaptureProfile of(World world) {
+		return of(world.getRegistryKey());
+	}
+
+	/**
+	 * Resolves the configured profile of a dimension - the config is parsed on each call, so callers should hold onto the result.
+	 */
+	public static CaptureProfile of(RegistryKey<World> worldKey) {
+		SurveyorConfig.Capture config = Surveyor.CONFIG.capture;
+		String fields = config.dimensions.get(worldKey.getValue().toString());
+		if (fields == null || fields.isBlank()) return new CaptureProfile(config.biome, config.block, config.light, config.water, config.glint);
+		List<String> fieldList = Arrays.stream(fields.split(",")).map(String::trim).toList();
+		return new CaptureProfile(fieldList.contains("biome"), fieldList.contains("block"), fieldList.contains("light"), fieldList.contains("water"), fieldList.contains("glint"));
+	}
+
+	public static CaptureProfile fromByte(byte flags) {
+		if (flags == ALL.toByte()) return ALL;
+		return new CaptureProfile((flags & BIOME) != 0, (flags & BLOCK) != 0, (flags & LIGHT) != 0, (flags & WATER) != 0, (flags & GLINT) != 0);
+	}
+
+	public byte toByte() {
+		return (byte) ((biome ? BIOME : 0) | (block ? BLOCK : 0) | (light ? LIGHT : 0) | (water ? WATER : 0) | (glint ? GLINT : 0));
+	}
+}
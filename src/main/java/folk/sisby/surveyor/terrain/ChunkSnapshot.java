@@ -0,0 +1,90 @@
+package folk.sisby.surveyor.terrain;
+
+import folk.sisby.surveyor.util.ChunkUtil;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.ChunkSectionPos;
+import net.minecraft.world.Heightmap;
+import net.minecraft.world.LightType;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.ChunkNibbleArray;
+import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.WorldChunk;
+import net.minecraft.world.chunk.light.ChunkLightingView;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A detached copy of everything a chunk summary reads from a chunk.
+ * Taken on the owning thread, so the summary itself can be built anywhere.
+ *
+ * @param pos                the position of the chunk.
+ * @param bottomY            the minimum block height of the world.
+ * @param topY               the maximum (exclusive) block height of the world.
+ * @param bottomSectionCoord the section coordinate of the lowest chunk section.
+ * @param sections           palette copies of each non-empty section, null for empty sections.
+ * @param blockLight         packed block light nibbles of each section, plus the section above the top of the chunk, 2048 bytes per section - empty if the profile records no light.
+ * @param surfaceHeights     the lowest height with only air above it for each column, or null if the chunk has no world surface heightmap.
+ * @param profile            the fields to record in the summary.
+ * @param airCount           the air count of the chunk, if recorded.
+ */
+public record ChunkSnapshot(ChunkPos pos, int bottomY, int topY, int bottomSectionCoord, @Nullable SectionSummary[] sections, byte[] blockLight, int @Nullable [] surfaceHeights, CaptureProfile profile, @Nullable Integer airCount) {
+	public static ChunkSnapshot of(World world, WorldChunk chunk, CaptureProfile profile, boolean countAir) {
+		ChunkSection[] rawSections = chunk.getSectionArray();
+		SectionSummary[] sections = new SectionSummary[rawSections.length];
+		for (int i = 0; i < rawSections.length; i++) {
+			sections[i] = SectionSummary.ofSection(rawSections[i]);
+		}
+		return new ChunkSnapshot(chunk.getPos(), world.getBottomY(), world.getTopY(), chunk.getBottomSectionCoord(), sections, profile.light() || profile.glint() ? blockLight(world, chunk, rawSections.length + 1) : new byte[0], surfaceHeights(chunk), profile, countAir ? ChunkUtil.airCount(chunk) : null);
+	}
+
+	private static byte[] blockLight(World world, WorldChunk chunk, int sectionCount) {
+		ChunkLightingView lighting = world.getLightingProvider().get(LightType.BLOCK);
+		byte[] blockLight = new byte[sectionCount * ChunkNibbleArray.BYTES_LENGTH];
+		for (int i = 0; i < sectionCount; i++) {
+			ChunkNibbleArray light = lighting.getLightSection(ChunkSectionPos.from(chunk.getPos(), chunk.getBottomSectionCoord() + i));
+			if (light == null) continue; // Unlit
+			if (light.isUninitialized()) { // Uniform - don't initialize the live array
+				int level = light.get(0, 0, 0);
+				if (level != 0) Arrays.fill(blockLight, i * ChunkNibbleArray.BYTES_LENGTH, (i + 1) * ChunkNibbleArray.BYTES_LENGTH, (byte) (level | level << 4));
+			} else {
+				System.arraycopy(light.asByteArray(), 0, blockLight, i * ChunkNibbleArray.BYTES_LENGTH, ChunkNibbleArray.BYTES_LENGTH);
+			}
+		}
+		return blockLight;
+	}
+
+	private static int[] surfaceHeights(WorldChunk chunk) {
+		for (Map.Entry<Heightmap.Type, Heightmap> entry : chunk.getHeightmaps()) {
+			if (entry.getKey() != Heightmap.Type.WORLD_SURFACE) continue;
+			int[] heights = new int[256];
+			for (int x = 0; x < 16; x++) {
+				for (int z = 0; z < 16; z++) {
+					heights[x * 16 + z] = entry.getValue().get(x, z);
+				}
+			}
+			return heights;
+		}
+		return null;
+	}
+
+	public int getSectionIndex(int y) {
+		return ChunkSectionPos.getSectionCoord(y) - bottomSectionCoord;
+	}
+
+	public int getSectionBottom(int sectionIndex) {
+		return ChunkSectionPos.getBlockCoord(sectionIndex + bottomSectionCoord);
+	}
+
+	public int getSurfaceHeight(int column) {
+		return surfaceHeights == null ? topY : surfaceHeights[column];
+	}
+
+	public int getBlockLight(int relativeX, int y, int relativeZ) {
+		int sectionIndex = getSectionIndex(y);
+		if (sectionIndex < 0 || sectionIndex >= blockLight.length / ChunkNibbleArray.BYTES_LENGTH) return 0;
+		int index = sectionIndex << 12 | (y & 15) << 8 | relativeZ << 4 | relativeX;
+		return blockLight[index >> 1] >> ((index & 1) << 2) & 15;
+	}
+}
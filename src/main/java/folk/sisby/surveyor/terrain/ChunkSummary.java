@@ -1,164 +1,314 @@
 package folk.sisby.surveyor.terrain;
 
 import folk.sisby.surveyor.util.ChunkUtil;
+import folk.sisby.surveyor.util.LocalPalette;
 import folk.sisby.surveyor.util.RegistryPalette;
 import folk.sisby.surveyor.util.uints.UInts;
 import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
-import net.minecraft.block.MapColor;
-import net.minecraft.fluid.Fluid;
-import net.minecraft.fluid.Fluids;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.network.PacketByteBuf;
-import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkSectionPos;
-import net.minecraft.world.LightType;
 import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.chunk.ChunkSection;
 import net.minecraft.world.chunk.WorldChunk;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
 import java.util.BitSet;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.Comparator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
 
 public class ChunkSummary {
 	public static final int MINIMUM_AIR_DEPTH = 2;
 	public static final String KEY_AIR_COUNT = "air";
 	public static final String KEY_LAYERS = "layers";
+	public static final String KEY_FINGERPRINTS = "fingerprints";
+	public static final String KEY_FIELDS = "fields";
 
 	protected final Integer airCount;
-	protected final TreeMap<Integer, @Nullable LayerSummary> layers = new TreeMap<>();
+	protected final int @Nullable [] fingerprints;
+	/**
+	 * The fields recorded by the capture - the rest are left at their defaults, and don't hold real values.
+	 */
+	protected final CaptureProfile profile;
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+	/**
+	 * The top height of each layer, highest first - shared between every summary with the same layers, see {@link DimensionSupport#internLayers}.
+	 */
+	protected final int[] layerHeights;
+	protected final @Nullable LayerSummary[] layers;
 
 	public ChunkSummary(World world, WorldChunk chunk, int[] layerHeights, RegistryPalette<Biome> biomePalette, RegistryPalette<Block> blockPalette, boolean countAir) {
-		this.airCount = countAir ? ChunkUtil.airCount(chunk) : null;
-		LayerSummary.FloorSummary[][] layerFloors = new LayerSummary.FloorSummary[layerHeights.length - 1][256];
-		ChunkSection[] rawSections = chunk.getSectionArray();
-		SectionSummary[] sections = new SectionSummary[rawSections.length];
-		for (int i = 0; i < rawSections.length; i++) {
-			sections[i] = SectionSummary.ofSection(rawSections[i]);
-		}
-		int chunkX = chunk.getPos().getStartX();
-		int chunkZ = chunk.getPos().getStartZ();
+		this(ChunkSnapshot.of(world, chunk, CaptureProfile.of(world), countAir), layerHeights, biomePalette, blockPalette);
+	}
+
+	public ChunkSummary(ChunkSnapshot snapshot, int[] layerHeights, RegistryPalette<Biome> biomePalette, RegistryPalette<Block> blockPalette) {
+		this(snapshot, null, layerHeights, biomePalette::findOrAdd, blockPalette::findOrAdd);
+	}
+
+	/**
+	 * @param columns  the X*16+Z columns to scan, or null to scan the whole chunk. Unscanned columns are left empty - see {@link #withColumns}.
+	 * @param biomeIds resolves biomes to the palette indices to store, e.g. a {@link LocalPalette} to be remapped on publish.
+	 * @param blockIds resolves blocks to the palette indices to store, e.g. a {@link LocalPalette} to be remapped on publish.
+	 */
+	public ChunkSummary(ChunkSnapshot snapshot, @Nullable BitSet columns, int[] layerHeights, ToIntFunction<Biome> biomeIds, ToIntFunction<Block> blockIds) {
+		this.airCount = snapshot.airCount();
+		this.profile = snapshot.profile();
+		this.layerHeights = DimensionSupport.internLayers(Arrays.copyOf(layerHeights, layerHeights.length - 1));
+		this.layers = new LayerSummary[this.layerHeights.length];
+		LayerSummary.Raw[] layerFloors = SCRATCH.get().layers(layerHeights.length - 1);
+		SectionSummary[] sections = snapshot.sections();
+		int[] sectionClasses = SCRATCH.get().sectionClasses(sections.length);
+		int[][] sectionBiomes = SCRATCH.get().sectionBiomes(sections.length);
+		this.fingerprints = new int[sections.length];
+		for (int i = 0; i < sections.length; i++) {
+			sectionClasses[i] = sections[i] == null ? SectionSummary.CLEAR : sections[i].classify();
+			fingerprints[i] = sections[i] == null ? 0 : sections[i].fingerprint();
+		}
 		for (int x = 0; x < 16; x++) {
 			for (int z = 0; z < 16; z++) {
+				int column = x * 16 + z;
+				if (columns != null && !columns.get(column)) continue;
 				int walkspaceHeight = 2; // Start at 2 to allow finding floors at the height limit.
 				int waterDepth = 0;
 				Block carpetBlock = null;
-				BlockPos carpetPos = new BlockPos(chunkX + x, Integer.MAX_VALUE, chunkZ + z);
+				int carpetY = Integer.MAX_VALUE;
+				int surfaceY = snapshot.getSurfaceHeight(column);
 				for (int layerIndex = 0; layerIndex < layerHeights.length - 1; layerIndex++) {
-					LayerSummary.FloorSummary foundFloor = null;
+					boolean foundFloor = false;
 					for (int y = layerHeights[layerIndex]; y > layerHeights[layerIndex + 1]; y--) {
-						int sectionIndex = chunk.getSectionIndex(y);
+						if (y >= surfaceY) { // Only air above the world surface
+							int spanBottom = Math.max(surfaceY, layerHeights[layerIndex + 1] + 1);
+							walkspaceHeight += (y - spanBottom + 1);
+							waterDepth = 0;
+							y = spanBottom;
+							continue;
+						}
+						int sectionIndex = snapshot.getSectionIndex(y);
 						SectionSummary section = sections[sectionIndex];
-						if (section == null) {
-							int sectionBottom = ChunkSectionPos.getBlockCoord(chunk.sectionIndexToCoord(sectionIndex));
-							walkspaceHeight += (y - sectionBottom + 1);
+						if (sectionClasses[sectionIndex] == SectionSummary.CLEAR) {
+							int spanBottom = Math.max(snapshot.getSectionBottom(sectionIndex), layerHeights[layerIndex + 1] + 1);
+							walkspaceHeight += (y - spanBottom + 1);
 							waterDepth = 0;
-							y = sectionBottom;
+							y = spanBottom;
 							continue;
 						}
-						BlockPos pos = new BlockPos(chunkX + x, y, chunkZ + z);
 						BlockState state = section.getBlockState(x, y, z);
-						Fluid fluid = state.getFluidState().getFluid();
+						byte stateClass = StateClasses.of(state);
 
-						if (!state.blocksMovement() && fluid.matchesType(Fluids.EMPTY)) {
+						if (StateClasses.isWalkable(stateClass)) {
 							walkspaceHeight++;
 							waterDepth = 0;
-							if (walkspaceHeight >= MINIMUM_AIR_DEPTH && state.getMapColor(world, pos) != MapColor.CLEAR) {
-								carpetPos = pos;
+							if (walkspaceHeight >= MINIMUM_AIR_DEPTH && !StateClasses.isClear(stateClass)) {
+								carpetY = y;
 								carpetBlock = state.getBlock();
 							}
-						} else if (fluid.matchesType(Fluids.WATER) || fluid.matchesType(Fluids.FLOWING_WATER)) { // keep walkspace when traversing water
+						} else if (StateClasses.isWater(stateClass)) { // keep walkspace when traversing water
 							waterDepth++;
 						} else { // Blocks Movement or Has Non-Water Fluid.
-							if (foundFloor == null) {
-								if (carpetPos.getY() == y + 1) {
-									foundFloor = new LayerSummary.FloorSummary(carpetPos.getY(), biomePalette.findOrAdd(section.getBiomeEntry(x, carpetPos.getY(), z, world.getBottomY(), world.getTopY()).value()), blockPalette.findOrAdd(carpetBlock), world.getLightLevel(LightType.BLOCK, carpetPos), waterDepth, waterDepth == 0 ? 0 : world.getLightLevel(LightType.BLOCK, pos.up().up(waterDepth)));
-									if (carpetPos.getY() > layerHeights[layerIndex]) { // Actually a floor for the layer above
-										if (layerFloors[layerIndex - 1][x * 16 + z] == null) layerFloors[layerIndex - 1][x * 16 + z] = foundFloor;
-										foundFloor = null;
+							if (!foundFloor) {
+								if (carpetY == y + 1) {
+									int floorLayer = carpetY > layerHeights[layerIndex] ? layerIndex - 1 : layerIndex; // Might actually be a floor for the layer above
+									if (floorLayer == layerIndex || !layerFloors[floorLayer].exists().get(column)) {
+										layerFloors[floorLayer].put(
+											column,
+											layerHeights[floorLayer] - carpetY,
+											profile.biome() ? resolveBiome(sectionBiomes, sectionIndex, section, section.getBiomeIndex(x, carpetY, z, snapshot.bottomY(), snapshot.topY()), biomeIds) : LayerSummary.BIOME_DEFAULT,
+											profile.block() ? blockIds.applyAsInt(carpetBlock) : LayerSummary.BLOCK_DEFAULT,
+											profile.light() ? snapshot.getBlockLight(x, carpetY, z) : LayerSummary.LIGHT_DEFAULT,
+											profile.water() ? waterDepth : LayerSummary.WATER_DEFAULT,
+											profile.glint() && waterDepth != 0 ? snapshot.getBlockLight(x, y + 1 + waterDepth, z) : LayerSummary.GLINT_DEFAULT
+										);
 									}
+									foundFloor = floorLayer == layerIndex;
 									// Carpeted glass needs to reset walkspaces
 									walkspaceHeight = 0;
 									waterDepth = 0;
-								} else if (walkspaceHeight >= MINIMUM_AIR_DEPTH && state.getMapColor(world, pos) != MapColor.CLEAR) {
-									foundFloor = new LayerSummary.FloorSummary(y, biomePalette.findOrAdd(section.getBiomeEntry(x, y, z, world.getBottomY(), world.getTopY()).value()), blockPalette.findOrAdd(state.getBlock()), world.getLightLevel(LightType.BLOCK, pos.up()), waterDepth, waterDepth == 0 ? 0 : world.getLightLevel(LightType.BLOCK, pos.up().up(waterDepth)));
+								} else if (walkspaceHeight >= MINIMUM_AIR_DEPTH && !StateClasses.isClear(stateClass)) {
+									layerFloors[layerIndex].put(
+										column,
+										layerHeights[layerIndex] - y,
+										profile.biome() ? resolveBiome(sectionBiomes, sectionIndex, section, section.getBiomeIndex(x, y, z, snapshot.bottomY(), snapshot.topY()), biomeIds) : LayerSummary.BIOME_DEFAULT,
+										profile.block() ? blockIds.applyAsInt(state.getBlock()) : LayerSummary.BLOCK_DEFAULT,
+										profile.light() ? snapshot.getBlockLight(x, y + 1, z) : LayerSummary.LIGHT_DEFAULT,
+										profile.water() ? waterDepth : LayerSummary.WATER_DEFAULT,
+										profile.glint() && waterDepth != 0 ? snapshot.getBlockLight(x, y + 1 + waterDepth, z) : LayerSummary.GLINT_DEFAULT
+									);
+									foundFloor = true;
 								}
 							}
-							if (state.getMapColor(world, pos) != MapColor.CLEAR) { // Don't reset walkspace for glass/barriers/etc.
+							if (!StateClasses.isClear(stateClass)) { // Don't reset walkspace for glass/barriers/etc.
 								walkspaceHeight = 0;
 								waterDepth = 0; // Prevents a glass block on the ocean floor from hiding all the water
 							}
+							if (sectionClasses[sectionIndex] == SectionSummary.SOLID) { // Nothing below the top of a solid span can be a floor
+								y = Math.max(snapshot.getSectionBottom(sectionIndex), layerHeights[layerIndex + 1] + 1);
+							}
 						}
 					}
-					layerFloors[layerIndex][x * 16 + z] = foundFloor;
 				}
 			}
 		}
-		for (int i = 0; i < layerFloors.length; i++) {
-			this.layers.put(layerHeights[i], LayerSummary.fromSummaries(layerFloors[i], layerHeights[i]));
+		for (int i = 0; i < this.layers.length; i++) {
+			this.layers[i] = LayerSummary.fromRaw(layerFloors[i]);
 		}
 	}
 
+	protected ChunkSummary(Integer airCount, int @Nullable [] fingerprints, CaptureProfile profile, int[] layerHeights) {
+		this.airCount = airCount;
+		this.fingerprints = fingerprints;
+		this.profile = profile;
+		this.layerHeights = layerHeights;
+		this.layers = new LayerSummary[layerHeights.length];
+	}
+
 	public ChunkSummary(NbtCompound nbt) {
 		this.airCount = nbt.contains(KEY_AIR_COUNT) ? nbt.getInt(KEY_AIR_COUNT) : null;
+		this.fingerprints = nbt.contains(KEY_FINGERPRINTS) ? nbt.getIntArray(KEY_FINGERPRINTS) : null;
+		this.profile = nbt.contains(KEY_FIELDS) ? CaptureProfile.fromByte(nbt.getByte(KEY_FIELDS)) : CaptureProfile.ALL;
 		NbtCompound layersCompound = nbt.getCompound(KEY_LAYERS);
-		for (String key : layersCompound.getKeys()) {
-			int layerY = Integer.parseInt(key);
-			layers.put(layerY, LayerSummary.fromNbt(layersCompound.getCompound(key)));
+		this.layerHeights = DimensionSupport.internLayers(layersCompound.getKeys().stream().map(Integer::parseInt).sorted(Comparator.reverseOrder()).mapToInt(i -> i).toArray());
+		this.layers = new LayerSummary[layerHeights.length];
+		for (int i = 0; i < layerHeights.length; i++) {
+			layers[i] = LayerSummary.fromNbt(layersCompound.getCompound(String.valueOf(layerHeights[i])));
 		}
 	}
 
 	public ChunkSummary(PacketByteBuf buf) {
-		layers.putAll(buf.readMap(PacketByteBuf::readVarInt, (b) -> {
-			if (b.readByte() == 0) {
-				return null;
-			} else {
-				return LayerSummary.fromBuf(buf);
-			}
-		}));
+		this.profile = CaptureProfile.fromByte(buf.readByte());
+		int layerCount = buf.readVarInt();
+		int[] readHeights = new int[layerCount];
+		LayerSummary[] readLayers = new LayerSummary[layerCount];
+		for (int i = layerCount - 1; i >= 0; i--) { // Sent lowest first
+			readHeights[i] = buf.readVarInt();
+			readLayers[i] = buf.readByte() == 0 ? null : LayerSummary.fromBuf(buf);
+		}
+		this.layerHeights = DimensionSupport.internLayers(readHeights);
+		this.layers = readLayers;
 		this.airCount = -1;
+		this.fingerprints = null;
 	}
 
 	public NbtCompound writeNbt(NbtCompound nbt) {
 		if (this.airCount != null) nbt.putInt(KEY_AIR_COUNT, this.airCount);
+		if (this.fingerprints != null) nbt.putIntArray(KEY_FINGERPRINTS, this.fingerprints);
+		if (!this.profile.equals(CaptureProfile.ALL)) nbt.putByte(KEY_FIELDS, this.profile.toByte());
 		NbtCompound layersCompound = new NbtCompound();
-		layers.forEach((layerY, layerSummary) -> {
+		for (int i = 0; i < layers.length; i++) {
 			NbtCompound layerCompound = new NbtCompound();
-			if (layerSummary != null) layerSummary.writeNbt(layerCompound);
-			layersCompound.put(String.valueOf(layerY), layerCompound);
-		});
+			if (layers[i] != null) layers[i].writeNbt(layerCompound);
+			layersCompound.put(String.valueOf(layerHeights[i]), layerCompound);
+		}
 		nbt.put(KEY_LAYERS, layersCompound);
 		return nbt;
 	}
 
 	public void writeBuf(PacketByteBuf buf) {
-		buf.writeMap(layers, PacketByteBuf::writeVarInt, (b, summary) -> {
-			if (summary == null) {
-				b.writeByte(0);
+		buf.writeByte(profile.toByte());
+		buf.writeVarInt(layers.length);
+		for (int i = layers.length - 1; i >= 0; i--) { // Lowest first, as sent from a sorted map
+			buf.writeVarInt(layerHeights[i]);
+			if (layers[i] == null) {
+				buf.writeByte(0);
 			} else {
-				b.writeByte(1);
-				summary.writeBuf(buf);
+				buf.writeByte(1);
+				layers[i].writeBuf(buf);
 			}
-		});
+		}
+	}
+
+	/**
+	 * Remaps uints in place where possible, so must only be called on freshly read or scanned summaries, before {@link #intern}.
+	 *
+	 * @param biomeRemap a lookup of new biome palette indices, e.g. from {@link UInts#lookup}.
+	 * @param blockRemap a lookup of new block palette indices, e.g. from {@link UInts#lookup}.
+	 */
+	public void remap(IntUnaryOperator biomeRemap, IntUnaryOperator blockRemap) {
+		for (int i = 0; i < layers.length; i++) {
+			LayerSummary layer = layers[i];
+			if (layer != null) layers[i] = new LayerSummary(layer.found, layer.depth, UInts.remap(layer.biome, biomeRemap, LayerSummary.BIOME_DEFAULT, layer.found.cardinality()), UInts.remap(layer.block, blockRemap, LayerSummary.BLOCK_DEFAULT, layer.found.cardinality()), layer.light, layer.water, layer.glint);
+		}
 	}
 
-	public void remap(Map<Integer, Integer> biomeRemap, Map<Integer, Integer> blockRemap) {
-		Map<Integer, LayerSummary> newLayers = new HashMap<>();
-		layers.forEach((y, layer) -> newLayers.put(y, layer == null ? null : new LayerSummary(layer.found, layer.depth, UInts.remap(layer.biome, biomeRemap::get, LayerSummary.BIOME_DEFAULT, layer.found.cardinality()), UInts.remap(layer.block, blockRemap::get, LayerSummary.BLOCK_DEFAULT, layer.found.cardinality()), layer.light, layer.water, layer.glint)));
-		layers.clear();
-		layers.putAll(newLayers);
+	/**
+	 * Shares identical layers with other summaries in the same world - see {@link LayerInterner}.
+	 */
+	public void intern(LayerInterner interner) {
+		for (int i = 0; i < layers.length; i++) {
+			layers[i] = interner.intern(layers[i]);
+		}
 	}
 
 	public Integer getAirCount() {
 		return airCount;
 	}
 
+	/**
+	 * @return the fields recorded in this summary. Fields it doesn't record are left at their defaults in {@link #toSingleLayer}.
+	 */
+	public CaptureProfile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * Checks whether a chunk has changed since it was summarised.
+	 * Compares the fingerprints of the sections within the summarised layers when recorded, falling back to the air count.
+	 *
+	 * @return true if the chunk should be re-summarised.
+	 */
+	public boolean isOutdated(WorldChunk chunk, int[] layerHeights) {
+		ChunkSection[] sections = chunk.getSectionArray();
+		if (fingerprints == null || fingerprints.length != sections.length) return !ChunkUtil.airCount(chunk).equals(airCount);
+		for (int i = 0; i < sections.length; i++) {
+			int sectionBottom = ChunkSectionPos.getBlockCoord(chunk.getBottomSectionCoord() + i);
+			if (sectionBottom + 15 <= layerHeights[layerHeights.length - 1] || sectionBottom > layerHeights[0]) continue;
+			if (SectionSummary.fingerprint(sections[i]) != fingerprints[i]) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return whether this summary was taken with the given layer heights, so it can be patched by a partial summary.
+	 */
+	public boolean hasLayers(int[] layerHeights) {
+		if (this.layerHeights.length != layerHeights.length - 1) return false;
+		for (int i = 0; i < this.layerHeights.length; i++) {
+			if (this.layerHeights[i] != layerHeights[i]) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Patches a partial summary of some columns over this summary.
+	 *
+	 * @param partial a summary of only the given columns.
+	 * @param columns the X*16+Z columns that were scanned for the partial summary.
+	 * @return a new summary with the partial summary's floors in the given columns, and this summary's floors everywhere else -
+	 * or null if the summaries have different layers or fields, so the whole chunk must be summarised instead.
+	 */
+	public @Nullable ChunkSummary withColumns(ChunkSummary partial, BitSet columns) {
+		if (partial.layerHeights != layerHeights || !partial.profile.equals(profile)) return null;
+		ChunkSummary merged = new ChunkSummary(partial.airCount, partial.fingerprints, profile, layerHeights);
+		LayerSummary.Raw raw = new LayerSummary.Raw(new BitSet(256), new int[256], new int[256], new int[256], new int[256], new int[256], new int[256]);
+		for (int i = 0; i < layers.length; i++) {
+			raw.exists().clear();
+			if (layers[i] != null) {
+				layers[i].fillEmptyFloors(0, Integer.MIN_VALUE, Integer.MAX_VALUE, profile, raw);
+				raw.exists().andNot(columns);
+			}
+			if (partial.layers[i] != null) partial.layers[i].fillEmptyFloors(0, Integer.MIN_VALUE, Integer.MAX_VALUE, profile, raw);
+			merged.layers[i] = LayerSummary.fromRaw(raw);
+		}
+		return merged;
+	}
+
 	/**
 	 * Gets an uncompressed layer of the topmost floor found for each X,Z column within the specified range.
+	 * Fields not recorded by {@link #getProfile} aren't decoded, and are left at their defaults.
 	 *
 	 * @param minY        the minimum (inclusive) height of floors to include in the layer.
 	 * @param maxY        the maximum (inclusive) height of floors to include in the layer.
@@ -167,16 +317,65 @@ public class ChunkSummary {
 	 */
 	public @Nullable LayerSummary.Raw toSingleLayer(Integer minY, Integer maxY, int worldHeight) {
 		LayerSummary.Raw outRaw = new LayerSummary.Raw(new BitSet(256), new int[256], new int[256], new int[256], new int[256], new int[256], new int[256]);
-		layers.descendingMap().forEach((y, layer) -> {
-			if (layer != null) {
-				layer.fillEmptyFloors(
+		for (int i = 0; i < layers.length; i++) {
+			int y = layerHeights[i];
+			if (layers[i] != null) {
+				layers[i].fillEmptyFloors(
 					worldHeight - y,
 					maxY == null ? Integer.MIN_VALUE : y - maxY,
 					minY == null ? Integer.MAX_VALUE : y - minY,
+					profile,
 					outRaw
 				);
 			}
-		});
+		}
 		return outRaw.exists().cardinality() == 0 ? null : outRaw;
 	}
+
+	/**
+	 * Resolves a biome in a section's palette to its palette index, once per section palette entry.
+	 */
+	private static int resolveBiome(int[][] sectionBiomes, int sectionIndex, SectionSummary section, int paletteIndex, ToIntFunction<Biome> biomeIds) {
+		int[] resolved = sectionBiomes[sectionIndex];
+		if (resolved == null) {
+			resolved = new int[section.biomePalette().getSize()];
+			Arrays.fill(resolved, -1);
+			sectionBiomes[sectionIndex] = resolved;
+		}
+		if (resolved[paletteIndex] == -1) resolved[paletteIndex] = biomeIds.applyAsInt(section.biomePalette().get(paletteIndex).value());
+		return resolved[paletteIndex];
+	}
+
+	/**
+	 * Per-thread floor buffers reused between scans. Each layer is filled in place, then copied out by LayerSummary#fromRaw.
+	 */
+	private static class Scratch {
+		private LayerSummary.Raw[] layers = new LayerSummary.Raw[0];
+		private int[] sectionClasses = new int[0];
+		private int[][] sectionBiomes = new int[0][];
+
+		int[][] sectionBiomes(int count) {
+			if (sectionBiomes.length < count) sectionBiomes = new int[count][];
+			Arrays.fill(sectionBiomes, null);
+			return sectionBiomes;
+		}
+
+		int[] sectionClasses(int count) {
+			if (sectionClasses.length < count) sectionClasses = new int[count];
+			return sectionClasses;
+		}
+
+		LayerSummary.Raw[] layers(int count) {
+			if (layers.length < count) {
+				layers = new LayerSummary.Raw[count];
+				for (int i = 0; i < count; i++) {
+					layers[i] = new LayerSummary.Raw(new BitSet(256), new int[256], new int[256], new int[256], new int[256], new int[256], new int[256]);
+				}
+			}
+			for (LayerSummary.Raw layer : layers) {
+				layer.exists().clear();
+			}
+			return layers;
+		}
+	}
 }
@@ -1,5 +1,6 @@
 package folk.sisby.surveyor.terrain;
 
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import net.minecraft.registry.RegistryKey;
 import net.minecraft.world.World;
 import net.minecraft.world.dimension.DimensionType;
@@ -10,9 +11,11 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DimensionSupport {
 	public static final Map<RegistryKey<World>, int[]> cache = new HashMap<>();
+	private static final Map<IntArrayList, int[]> LAYER_TABLES = new ConcurrentHashMap<>();
 
 	private static void softAdd(DimensionType dimension, List<Integer> layers, int y) {
 		if (dimension.minY() < y && y < dimension.minY() + dimension.height()) layers.add(y);
@@ -39,6 +42,13 @@ public class DimensionSupport {
 		return outLayers;
 	}
 
+	/**
+	 * @return a shared array equal to the given layer heights, so summaries with the same layers don't each hold their own.
+	 */
+	public static int[] internLayers(int[] layerHeights) {
+		return LAYER_TABLES.computeIfAbsent(IntArrayList.wrap(layerHeights), k -> layerHeights);
+	}
+
 	public static int[] getSummaryLayers(World world) {
 		return cache.computeIfAbsent(world.getRegistryKey(), k -> getSummaryLayersInternal(world));
 	}
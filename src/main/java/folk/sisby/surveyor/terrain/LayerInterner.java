@@ -0,0 +1,35 @@
+package folk.sisby.surveyor.terrain;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shares one instance between layer summaries with identical contents - common across oceans, flat worlds and the void.
+ * Held weakly, so canonical layers are dropped once no summary uses them.
+ * Each world's terrain holds its own, so layers are never shared between worlds, or between a client and its integrated server.
+ * Interned layers are shared, so their uints must never be remapped in place.
+ */
+public class LayerInterner {
+	private final Interner<LayerSummary> layers = Interners.newWeakInterner();
+	private final AtomicLong interned = new AtomicLong();
+	private final AtomicLong shared = new AtomicLong();
+
+	public @Nullable LayerSummary intern(@Nullable LayerSummary layer) {
+		if (layer == null) return null;
+		LayerSummary canonical = layers.intern(layer);
+		interned.incrementAndGet();
+		if (canonical != layer) shared.incrementAndGet();
+		return canonical;
+	}
+
+	/**
+	 * @return the fraction of interned layers that were replaced by an existing identical layer.
+	 */
+	public double dedupRatio() {
+		long total = interned.get();
+		return total == 0 ? 0 : (double) shared.get() / total;
+	}
+}
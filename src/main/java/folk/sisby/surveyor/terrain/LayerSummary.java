@@ -6,6 +6,7 @@ import net.minecraft.network.PacketByteBuf;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Arrays;
 import java.util.BitSet;
 
 public class LayerSummary {
@@ -24,6 +25,8 @@ public class LayerSummary {
 	public static final int WATER_DEFAULT = 0;
 	public static final int GLINT_DEFAULT = 0;
 
+	private static final ThreadLocal<int[][]> DECODED = ThreadLocal.withInitial(() -> new int[6][256]);
+
 	protected final @NotNull BitSet found;
 	protected final @Nullable UInts depth;
 	protected final @Nullable UInts biome;
@@ -31,6 +34,7 @@ public class LayerSummary {
 	protected final @Nullable UInts light;
 	protected final @Nullable UInts water;
 	protected final @Nullable UInts glint;
+	private int hash = 0;
 
 	protected LayerSummary(@NotNull BitSet found, @Nullable UInts depth, @Nullable UInts biome, @Nullable UInts block, @Nullable UInts light, @Nullable UInts water, @Nullable UInts glint) {
 		this.found = found;
@@ -42,12 +46,8 @@ public class LayerSummary {
 		this.glint = glint;
 	}
 
-	public static LayerSummary fromSummaries(FloorSummary[] floorSummaries, int layerY) {
-		BitSet found = new BitSet(256);
-		for (int i = 0; i < floorSummaries.length; i++) {
-			found.set(i, floorSummaries[i] != null);
-		}
-		int cardinality = found.cardinality();
+	public static LayerSummary fromRaw(Raw raw) {
+		int cardinality = raw.exists().cardinality();
 		if (cardinality == 0) return null;
 		int[] depth = new int[cardinality];
 		int[] biome = new int[cardinality];
@@ -56,20 +56,17 @@ public class LayerSummary {
 		int[] water = new int[cardinality];
 		int[] glint = new int[cardinality];
 		int c = 0;
-		for (int i = 0; i < floorSummaries.length; i++) {
-			if (found.get(i)) {
-				FloorSummary summary = floorSummaries[i];
-				depth[c] = layerY - summary.y;
-				biome[c] = summary.biome;
-				block[c] = summary.block;
-				light[c] = summary.lightLevel;
-				water[c] = summary.fluidDepth;
-				glint[c] = summary.waterLight;
-				c++;
-			}
+		for (int i = raw.exists().nextSetBit(0); i >= 0; i = raw.exists().nextSetBit(i + 1)) {
+			depth[c] = raw.depths()[i];
+			biome[c] = raw.biomes()[i];
+			block[c] = raw.blocks()[i];
+			light[c] = raw.lightLevels()[i];
+			water[c] = raw.waterDepths()[i];
+			glint[c] = raw.waterLights()[i];
+			c++;
 		}
 		return new LayerSummary(
-			found,
+			(BitSet) raw.exists().clone(),
 			UInts.fromUInts(depth, DEPTH_DEFAULT),
 			UInts.fromUInts(biome, BIOME_DEFAULT),
 			UInts.fromUInts(block, BLOCK_DEFAULT),
@@ -127,28 +124,90 @@ public class LayerSummary {
 		UInts.writeBuf(glint, buf);
 	}
 
-	public void fillEmptyFloors(int depthOffset, int minDepth, int maxDepth, LayerSummary.Raw outLayer) {
+	/**
+	 * @param profile the fields recorded in the layer - the rest are filled with their defaults without being decoded.
+	 */
+	public void fillEmptyFloors(int depthOffset, int minDepth, int maxDepth, CaptureProfile profile, LayerSummary.Raw outLayer) {
+		BitSet empty = (BitSet) found.clone();
+		empty.andNot(outLayer.exists);
+		if (empty.isEmpty()) return;
+		int cardinality = found.cardinality();
+		int[][] decoded = DECODED.get();
+		UInts.decodeInto(depth, DEPTH_DEFAULT, decoded[0], cardinality);
+		UInts.decodeInto(profile.biome() ? biome : null, BIOME_DEFAULT, decoded[1], cardinality);
+		UInts.decodeInto(profile.block() ? block : null, BLOCK_DEFAULT, decoded[2], cardinality);
+		UInts.decodeInto(profile.light() ? light : null, LIGHT_DEFAULT, decoded[3], cardinality);
+		UInts.decodeInto(profile.water() ? water : null, WATER_DEFAULT, decoded[4], cardinality);
+		UInts.decodeInto(profile.glint() ? glint : null, GLINT_DEFAULT, decoded[5], cardinality);
 		int i = 0;
-		for (int j = 0; j < 256; j++) {
-			if (found.get(j)) {
-				int floorDepth = depth == null ? DEPTH_DEFAULT : depth.get(i);
-				if (!outLayer.exists.get(j) && floorDepth >= minDepth && floorDepth <= maxDepth) {
-					outLayer.exists.set(j);
-					outLayer.depths[j] = floorDepth + depthOffset;
-					outLayer.biomes[j] = biome == null ? BIOME_DEFAULT : biome.get(i);
-					outLayer.blocks[j] = block == null ? BLOCK_DEFAULT : block.get(i);
-					outLayer.lightLevels[j] = light == null ? LIGHT_DEFAULT : light.get(i);
-					outLayer.waterDepths[j] = water == null ? WATER_DEFAULT : water.get(i);
-					outLayer.waterLights[j] = glint == null ? GLINT_DEFAULT : glint.get(i);
-				}
-				i++;
+		for (int j = found.nextSetBit(0); j >= 0; j = found.nextSetBit(j + 1), i++) {
+			int floorDepth = decoded[0][i];
+			if (empty.get(j) && floorDepth >= minDepth && floorDepth <= maxDepth) {
+				outLayer.put(j, floorDepth + depthOffset, decoded[1][i], decoded[2][i], decoded[3][i], decoded[4][i], decoded[5][i]);
 			}
 		}
 	}
 
-	public record Raw(BitSet exists, int[] depths, int[] biomes, int[] blocks, int[] lightLevels, int[] waterDepths, int[] waterLights) {
+	private static int hashUInts(@Nullable UInts uints, int defaultValue, int cardinality, int[] buffer) {
+		UInts.decodeInto(uints, defaultValue, buffer, cardinality);
+		int hash = 1;
+		for (int i = 0; i < cardinality; i++) {
+			hash = 31 * hash + buffer[i];
+		}
+		return hash;
+	}
+
+	private static boolean equalUInts(@Nullable UInts a, @Nullable UInts b, int defaultValue, int cardinality, int[] bufferA, int[] bufferB) {
+		if (a == b) return true;
+		UInts.decodeInto(a, defaultValue, bufferA, cardinality);
+		UInts.decodeInto(b, defaultValue, bufferB, cardinality);
+		return Arrays.equals(bufferA, 0, cardinality, bufferB, 0, cardinality);
 	}
 
-	public record FloorSummary(int y, int biome, int block, int lightLevel, int fluidDepth, int waterLight) {
+	/**
+	 * Hashes the found columns and decoded values, so identical layers hash the same regardless of encoding -
+	 * including a null field and one holding only its default, as packed views do.
+	 */
+	@Override
+	public int hashCode() {
+		if (hash == 0) {
+			int cardinality = found.cardinality();
+			int[] buffer = DECODED.get()[0];
+			int h = found.hashCode();
+			h = 31 * h + hashUInts(depth, DEPTH_DEFAULT, cardinality, buffer);
+			h = 31 * h + hashUInts(biome, BIOME_DEFAULT, cardinality, buffer);
+			h = 31 * h + hashUInts(block, BLOCK_DEFAULT, cardinality, buffer);
+			h = 31 * h + hashUInts(light, LIGHT_DEFAULT, cardinality, buffer);
+			h = 31 * h + hashUInts(water, WATER_DEFAULT, cardinality, buffer);
+			h = 31 * h + hashUInts(glint, GLINT_DEFAULT, cardinality, buffer);
+			hash = h == 0 ? 1 : h;
+		}
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof LayerSummary other) || hashCode() != other.hashCode() || !found.equals(other.found)) return false;
+		int cardinality = found.cardinality();
+		int[][] decoded = DECODED.get();
+		return equalUInts(depth, other.depth, DEPTH_DEFAULT, cardinality, decoded[0], decoded[1])
+			&& equalUInts(biome, other.biome, BIOME_DEFAULT, cardinality, decoded[0], decoded[1])
+			&& equalUInts(block, other.block, BLOCK_DEFAULT, cardinality, decoded[0], decoded[1])
+			&& equalUInts(light, other.light, LIGHT_DEFAULT, cardinality, decoded[0], decoded[1])
+			&& equalUInts(water, other.water, WATER_DEFAULT, cardinality, decoded[0], decoded[1])
+			&& equalUInts(glint, other.glint, GLINT_DEFAULT, cardinality, decoded[0], decoded[1]);
+	}
+
+	public record Raw(BitSet exists, int[] depths, int[] biomes, int[] blocks, int[] lightLevels, int[] waterDepths, int[] waterLights) {
+		public void put(int i, int depth, int biome, int block, int lightLevel, int waterDepth, int waterLight) {
+			exists.set(i);
+			depths[i] = depth;
+			biomes[i] = biome;
+			blocks[i] = block;
+			lightLevels[i] = lightLevel;
+			waterDepths[i] = waterDepth;
+			waterLights[i] = waterLight;
+		}
 	}
 }
@@ -0,0 +1,239 @@
+package folk.sisby.surveyor.terrain;
+
+import folk.sisby.surveyor.util.uints.PackedIntArray;
+import folk.sisby.surveyor.util.uints.PackedUInts;
+import folk.sisby.surveyor.util.uints.UInts;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A columnar copy of a region's chunk summaries.
+ * Each field of each layer is packed for the whole region into one array, indexed per chunk by an offset table,
+ * so a region holds a handful of arrays per layer instead of a BitSet and six UInts per chunk per layer.
+ * Every array is a slice of a single buffer, which can be allocated off the heap - see {@link #pack}.
+ * Chunks are read back through lightweight views, cached until memory runs low - see {@link #get}.
+ */
+public class PackedRegion {
+	public static final int FIELDS = 6;
+	public static final int FOUND_LONGS = 256 / Long.SIZE;
+	private static final int NO_AIR_COUNT = Integer.MIN_VALUE;
+	private static final int[] FIELD_DEFAULTS = {LayerSummary.DEPTH_DEFAULT, LayerSummary.BIOME_DEFAULT, LayerSummary.BLOCK_DEFAULT, LayerSummary.LIGHT_DEFAULT, LayerSummary.WATER_DEFAULT, LayerSummary.GLINT_DEFAULT};
+	private static final int NO_FIELD = 0;
+
+	protected final int[] layerHeights;
+	protected final ShortBuffer slots;
+	protected final IntBuffer airCounts;
+	protected final ByteBuffer profiles;
+	protected final IntBuffer fingerprintOffsets;
+	protected final IntBuffer fingerprints;
+	protected final LongBuffer[] found;
+	protected final IntBuffer[] offsets;
+	protected final @Nullable PackedIntArray[][] fields;
+	protected final AtomicReferenceArray<SoftReference<ChunkSummary>> views;
+
+	protected PackedRegion(int[] layerHeights, ShortBuffer slots, IntBuffer airCounts, ByteBuffer profiles, IntBuffer fingerprintOffsets, IntBuffer fingerprints, LongBuffer[] found, IntBuffer[] offsets, @Nullable PackedIntArray[][] fields) {
+		this.layerHeights = layerHeights;
+		this.slots = slots;
+		this.airCounts = airCounts;
+		this.profiles = profiles;
+		this.fingerprintOffsets = fingerprintOffsets;
+		this.fingerprints = fingerprints;
+		this.found = found;
+		this.offsets = offsets;
+		this.fields = fields;
+		this.views = new AtomicReferenceArray<>(airCounts.capacity());
+	}
+
+	/**
+	 * Packs every given summary taken with the given layer heights.
+	 *
+	 * @param summaries chunk summaries by region bit, null where absent.
+	 * @param direct    whether to hold the packed data in direct memory, off the java heap.
+	 * @return the packed region, which {@link #contains} exactly the summaries that were packed.
+	 */
+	public static PackedRegion pack(@Nullable ChunkSummary[] summaries, int[] layerHeights, boolean direct) {
+		int count = 0;
+		int fingerprintCount = 0;
+		for (ChunkSummary summary : summaries) {
+			if (summary != null && summary.layerHeights == layerHeights) {
+				count++;
+				if (summary.fingerprints != null) fingerprintCount += summary.fingerprints.length;
+			}
+		}
+		ChunkSummary[] bySlot = new ChunkSummary[count];
+		short[] slotsByBit = new short[summaries.length];
+		short slot = 0;
+		for (int bit = 0; bit < summaries.length; bit++) {
+			ChunkSummary summary = summaries[bit];
+			if (summary == null || summary.layerHeights != layerHeights) {
+				slotsByBit[bit] = -1;
+				continue;
+			}
+			slotsByBit[bit] = slot;
+			bySlot[slot++] = summary;
+		}
+
+		// Size everything first, so the region fits in one allocation.
+		int[][] layerOffsets = new int[layerHeights.length][count + 1];
+		int[][] fieldBits = new int[layerHeights.length][FIELDS];
+		int[] decoded = new int[256];
+		long fieldLongs = 0;
+		for (int layer = 0; layer < layerHeights.length; layer++) {
+			for (int s = 0; s < count; s++) {
+				LayerSummary layerSummary = bySlot[s].layers[layer];
+				layerOffsets[layer][s + 1] = layerOffsets[layer][s] + (layerSummary == null ? 0 : layerSummary.found.cardinality());
+			}
+			for (int field = 0; field < FIELDS; field++) {
+				int or = 0;
+				for (int s = 0; s < count; s++) {
+					LayerSummary layerSummary = bySlot[s].layers[layer];
+					if (layerSummary == null) continue;
+					int cardinality = layerOffsets[layer][s + 1] - layerOffsets[layer][s];
+					UInts.decodeInto(fieldOf(layerSummary, field), FIELD_DEFAULTS[field], decoded, cardinality);
+					for (int i = 0; i < cardinality; i++) {
+						or |= decoded[i];
+					}
+				}
+				fieldBits[layer][field] = or == 0 ? NO_FIELD : PackedIntArray.bitsFor(or);
+				if (or != 0) fieldLongs += PackedIntArray.dataLength(layerOffsets[layer][count], fieldBits[layer][field]);
+			}
+		}
+		long longs = (long) layerHeights.length * count * FOUND_LONGS + fieldLongs;
+		long ints = count + (count + 1L) + fingerprintCount + (long) layerHeights.length * (count + 1);
+		long bytes = longs * Long.BYTES + ints * Integer.BYTES + (long) summaries.length * Short.BYTES + count;
+		if (bytes > Integer.MAX_VALUE) throw new IllegalStateException("PackedRegion encountered a region too large to pack: " + bytes + " bytes");
+		ByteBuffer buffer = (direct ? ByteBuffer.allocateDirect((int) bytes) : ByteBuffer.allocate((int) bytes)).order(ByteOrder.nativeOrder());
+
+		// Longs first, keeping every slice aligned.
+		LongBuffer[] found = new LongBuffer[layerHeights.length];
+		PackedIntArray[][] fields = new PackedIntArray[layerHeights.length][FIELDS];
+		for (int layer = 0; layer < layerHeights.length; layer++) {
+			found[layer] = take(buffer, count * FOUND_LONGS * Long.BYTES).asLongBuffer();
+			for (int s = 0; s < count; s++) {
+				LayerSummary layerSummary = bySlot[s].layers[layer];
+				if (layerSummary == null) continue;
+				long[] foundLongs = layerSummary.found.toLongArray();
+				found[layer].put(s * FOUND_LONGS, foundLongs, 0, Math.min(foundLongs.length, FOUND_LONGS));
+			}
+			int total = layerOffsets[layer][count];
+			int[] values = null;
+			for (int field = 0; field < FIELDS; field++) {
+				int bits = fieldBits[layer][field];
+				if (bits == NO_FIELD) continue;
+				if (values == null) values = new int[total];
+				for (int s = 0; s < count; s++) {
+					LayerSummary layerSummary = bySlot[s].layers[layer];
+					if (layerSummary == null) continue;
+					int start = layerOffsets[layer][s];
+					UInts.decodeInto(fieldOf(layerSummary, field), FIELD_DEFAULTS[field], decoded, layerOffsets[layer][s + 1] - start);
+					System.arraycopy(decoded, 0, values, start, layerOffsets[layer][s + 1] - start);
+				}
+				fields[layer][field] = PackedIntArray.packInto(take(buffer, PackedIntArray.dataLength(total, bits) * Long.BYTES).asLongBuffer(), values, total, bits);
+			}
+		}
+		IntBuffer airCounts = take(buffer, count * Integer.BYTES).asIntBuffer();
+		IntBuffer fingerprintOffsets = take(buffer, (count + 1) * Integer.BYTES).asIntBuffer();
+		IntBuffer fingerprints = take(buffer, fingerprintCount * Integer.BYTES).asIntBuffer();
+		int fingerprintOffset = 0;
+		for (int s = 0; s < count; s++) {
+			ChunkSummary summary = bySlot[s];
+			airCounts.put(s, summary.airCount == null ? NO_AIR_COUNT : summary.airCount);
+			if (summary.fingerprints != null) {
+				fingerprints.put(fingerprintOffset, summary.fingerprints);
+				fingerprintOffset += summary.fingerprints.length;
+			}
+			fingerprintOffsets.put(s + 1, fingerprintOffset);
+		}
+		IntBuffer[] offsets = new IntBuffer[layerHeights.length];
+		for (int layer = 0; layer < layerHeights.length; layer++) {
+			offsets[layer] = take(buffer, (count + 1) * Integer.BYTES).asIntBuffer();
+			offsets[layer].put(0, layerOffsets[layer]);
+		}
+		ShortBuffer slots = take(buffer, summaries.length * Short.BYTES).asShortBuffer();
+		slots.put(0, slotsByBit);
+		ByteBuffer profiles = take(buffer, count);
+		for (int s = 0; s < count; s++) {
+			profiles.put(s, bySlot[s].profile.toByte());
+		}
+		return new PackedRegion(layerHeights, slots, airCounts, profiles, fingerprintOffsets, fingerprints, found, offsets, fields);
+	}
+
+	/**
+	 * Slices the next bytes off the buffer.
+	 */
+	private static ByteBuffer take(ByteBuffer buffer, int bytes) {
+		ByteBuffer slice = buffer.slice(buffer.position(), bytes).order(ByteOrder.nativeOrder());
+		buffer.position(buffer.position() + bytes);
+		return slice;
+	}
+
+	private static @Nullable UInts fieldOf(LayerSummary layer, int field) {
+		return switch (field) {
+			case 0 -> layer.depth;
+			case 1 -> layer.biome;
+			case 2 -> layer.block;
+			case 3 -> layer.light;
+			case 4 -> layer.water;
+			default -> layer.glint;
+		};
+	}
+
+	public boolean contains(int bit) {
+		return slots.get(bit) >= 0;
+	}
+
+	/**
+	 * @return a view of the chunk summary at the given region bit, or null if it isn't packed here.
+	 * Repeated reads return the same view while it's cached, so views must not be modified.
+	 */
+	public @Nullable ChunkSummary get(int bit) {
+		int slot = slots.get(bit);
+		if (slot < 0) return null;
+		SoftReference<ChunkSummary> cached = views.get(slot);
+		ChunkSummary view = cached == null ? null : cached.get();
+		if (view == null) {
+			view = createView(slot);
+			views.set(slot, new SoftReference<>(view));
+		}
+		return view;
+	}
+
+	private ChunkSummary createView(int slot) {
+		int fingerprintStart = fingerprintOffsets.get(slot);
+		int[] chunkFingerprints = null;
+		if (fingerprintOffsets.get(slot + 1) > fingerprintStart) {
+			chunkFingerprints = new int[fingerprintOffsets.get(slot + 1) - fingerprintStart];
+			fingerprints.get(fingerprintStart, chunkFingerprints);
+		}
+		int airCount = airCounts.get(slot);
+		ChunkSummary summary = new ChunkSummary(airCount == NO_AIR_COUNT ? null : airCount, chunkFingerprints, CaptureProfile.fromByte(profiles.get(slot)), layerHeights);
+		for (int layer = 0; layer < layerHeights.length; layer++) {
+			int start = offsets[layer].get(slot);
+			int cardinality = offsets[layer].get(slot + 1) - start;
+			if (cardinality == 0) continue;
+			summary.layers[layer] = new LayerSummary(
+				BitSet.valueOf(found[layer].slice(slot * FOUND_LONGS, FOUND_LONGS)),
+				view(layer, 0, start, cardinality),
+				view(layer, 1, start, cardinality),
+				view(layer, 2, start, cardinality),
+				view(layer, 3, start, cardinality),
+				view(layer, 4, start, cardinality),
+				view(layer, 5, start, cardinality)
+			);
+		}
+		return summary;
+	}
+
+	private @Nullable UInts view(int layer, int field, int start, int cardinality) {
+		PackedIntArray array = fields[layer][field];
+		return array == null ? null : new PackedUInts(array, start, cardinality, FIELD_DEFAULTS[field]);
+	}
+}
@@ -4,7 +4,9 @@ import folk.sisby.surveyor.Surveyor;
 import folk.sisby.surveyor.config.SystemMode;
 import folk.sisby.surveyor.packet.S2CUpdateRegionPacket;
 import folk.sisby.surveyor.util.RegistryPalette;
-import it.unimi.dsi.fastutil.ints.Int2IntArrayMap;
+import folk.sisby.surveyor.util.uints.UInts;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import net.minecraft.block.Block;
 import net.minecraft.block.Blocks;
 import net.minecraft.nbt.NbtCompound;
@@ -14,19 +16,20 @@ import net.minecraft.nbt.NbtString;
 import net.minecraft.registry.DynamicRegistryManager;
 import net.minecraft.registry.Registry;
 import net.minecraft.registry.RegistryKeys;
-import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.Identifier;
 import net.minecraft.util.math.ChunkPos;
-import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.biome.BiomeKeys;
-import net.minecraft.world.chunk.WorldChunk;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
 
 public class RegionSummary {
 	public static final int REGION_POWER = 5;
@@ -42,13 +45,28 @@ public class RegionSummary {
 
 	protected final RegistryPalette<Biome> biomePalette;
 	protected final RegistryPalette<Block> blockPalette;
-	protected final ChunkSummary[][] chunks = new ChunkSummary[REGION_SIZE][REGION_SIZE];
+	/**
+	 * Chunk summaries by region bit, set since the region was last packed. Atomic, so a reader that sees a chunk cleared by {@link #pack} also sees the packed region holding it.
+	 */
+	protected final AtomicReferenceArray<ChunkSummary> chunks = new AtomicReferenceArray<>(BITSET_SIZE);
+	/**
+	 * Packed summaries of the region as of its last load or save. Chunks in {@link #chunks} take precedence.
+	 */
+	protected volatile @Nullable PackedRegion packed = null;
+	/**
+	 * A mapped region file, which chunks in neither {@link #chunks} nor {@link #packed} are inflated from each time they're read.
+	 */
+	protected volatile @Nullable LazyChunks lazy = null;
 
-	protected boolean dirty = false;
+	/**
+	 * Chunks changed since the region was last saved, so only they need rewriting - see {@link TerrainRegionFile#write}.
+	 */
+	protected final BitSet dirtyChunks = new BitSet(BITSET_SIZE);
+	protected volatile boolean dirty = false;
 
-	public RegionSummary(DynamicRegistryManager manager) {
-		biomePalette = new RegistryPalette<>(manager.get(RegistryKeys.BIOME));
-		blockPalette = new RegistryPalette<>(manager.get(RegistryKeys.BLOCK));
+	public RegionSummary(RegistryPalette<Biome> biomePalette, RegistryPalette<Block> blockPalette) {
+		this.biomePalette = biomePalette;
+		this.blockPalette = blockPalette;
 	}
 
 	public static <T, O> List<O> mapIterable(Iterable<T> palette, Function<T, O> mapper) {
@@ -91,113 +109,257 @@ public class RegionSummary {
 		return new ChunkPos(regionToChunk(rPos.x) + xForBit(i), regionToChunk(rPos.z) + zForBit(i));
 	}
 
-	public static RegionSummary readNbt(NbtCompound nbt, DynamicRegistryManager manager, ChunkPos pos) {
-		RegionSummary summary = new RegionSummary(manager);
-		Registry<Biome> biomeRegistry = manager.get(RegistryKeys.BIOME);
-		Registry<Block> blockRegistry = manager.get(RegistryKeys.BLOCK);
-		NbtList biomeList = nbt.getList(KEY_BIOMES, NbtElement.STRING_TYPE);
-		Map<Integer, Integer> biomeRemap = new Int2IntArrayMap(biomeList.size());
-		for (int i = 0; i < biomeList.size(); i++) {
-			Identifier biomeId = new Identifier(biomeList.get(i).asString());
-			Biome biome = biomeRegistry.get(biomeId);
-			Biome newBiome = biome == null ? biomeRegistry.get(BiomeKeys.THE_VOID) : biome;
-			int newIndex = summary.biomePalette.findOrAdd(newBiome);
-			if (biome == null || newIndex != i) {
-				Surveyor.LOGGER.warn("[Surveyor] Remapping biome palette in region {}: {} (#{}) is now {} (#{})", pos, biomeId, i, biomeRegistry.getId(newBiome), newIndex);
-				biomeRemap.put(i, newIndex);
-				summary.dirty();
+	/**
+	 * Loads a world's saved palette into an empty palette, keeping every saved index - so region files, however lazily they're read, never need remapping.
+	 * Entries that no longer exist are held as placeholders showing the fallback, and are saved under their old identifier.
+	 */
+	public static <T> void loadPalette(NbtList list, Registry<T> registry, T fallback, RegistryPalette<T> palette, String name, Object source) {
+		for (int i = 0; i < list.size(); i++) {
+			Identifier id = new Identifier(list.get(i).asString());
+			if (!registry.containsId(id)) {
+				Surveyor.LOGGER.warn("[Surveyor] Missing {} palette entry in {}: {} (#{}) is shown as {} until it's back", name, source, id, i, registry.getId(fallback));
+				palette.addPlaceholder(fallback, id);
+			} else if (palette.find(registry.getRawId(registry.get(id))) != -1) { // Saved twice, e.g. under an alias
+				palette.addPlaceholder(registry.get(id), id);
+			} else {
+				palette.findOrAdd(registry.get(id));
 			}
 		}
-		NbtList blockList = nbt.getList(KEY_BLOCKS, NbtElement.STRING_TYPE);
-		Map<Integer, Integer> blockRemap = new Int2IntArrayMap(blockList.size());
-		for (int i = 0; i < blockList.size(); i++) {
-			Identifier blockId = new Identifier(blockList.get(i).asString());
-			Block block = blockRegistry.get(blockId);
-			Block newBlock = block == null ? Blocks.AIR : block;
-			int newIndex = summary.blockPalette.findOrAdd(newBlock);
-			if (block == null || newIndex != i) {
-				Surveyor.LOGGER.warn("[Surveyor] Remapping block palette in region {}: {} (#{}) is now {} (#{})", pos, blockList.get(i).asString(), i, blockRegistry.getId(newBlock), newIndex);
-				blockRemap.put(i, newIndex);
-				summary.dirty();
-			}
+	}
+
+	/**
+	 * Adds every entry of a legacy region's palette to a world palette, substituting a fallback for entries that no longer exist.
+	 *
+	 * @return a remapping of saved indices to palette indices, holding only those that changed.
+	 */
+	public static <T> Int2IntMap readPalette(NbtList list, Registry<T> registry, T fallback, RegistryPalette<T> palette, String name, Object source) {
+		Int2IntMap remap = new Int2IntOpenHashMap();
+		for (int i = 0; i < list.size(); i++) {
+			Identifier id = new Identifier(list.get(i).asString());
+			T value = registry.containsId(id) ? registry.get(id) : null;
+			T newValue = value == null ? fallback : value;
+			int newIndex = palette.findOrAdd(newValue);
+			if (value == null) Surveyor.LOGGER.warn("[Surveyor] Remapping {} palette in {}: {} (#{}) is now {} (#{})", name, source, id, i, registry.getId(newValue), newIndex);
+			if (newIndex != i) remap.put(i, newIndex);
+		}
+		return remap;
+	}
+
+	/**
+	 * Reads a legacy region file, holding every chunk in one nbt compound. The region is marked dirty, so it's converted on save.
+	 *
+	 * @param biomeRemap a remapping of saved world palette indices, from {@link #readPalette}.
+	 * @param blockRemap a remapping of saved world palette indices, from {@link #readPalette}.
+	 */
+	public static RegionSummary readNbt(NbtCompound nbt, DynamicRegistryManager manager, RegistryPalette<Biome> biomePalette, RegistryPalette<Block> blockPalette, Int2IntMap biomeRemap, Int2IntMap blockRemap, ChunkPos pos) {
+		if (nbt.contains(KEY_BIOMES) || nbt.contains(KEY_BLOCKS)) { // Legacy region palette - move into the world palette
+			Registry<Biome> biomeRegistry = manager.get(RegistryKeys.BIOME);
+			Registry<Block> blockRegistry = manager.get(RegistryKeys.BLOCK);
+			biomeRemap = readPalette(nbt.getList(KEY_BIOMES, NbtElement.STRING_TYPE), biomeRegistry, biomeRegistry.get(BiomeKeys.THE_VOID), biomePalette, "biome", "region " + pos);
+			blockRemap = readPalette(nbt.getList(KEY_BLOCKS, NbtElement.STRING_TYPE), blockRegistry, Blocks.AIR, blockPalette, "block", "region " + pos);
 		}
 		NbtCompound chunksCompound = nbt.getCompound(KEY_CHUNKS);
+		NbtCompound[] chunks = new NbtCompound[BITSET_SIZE];
 		for (String posKey : chunksCompound.getKeys()) {
 			int x = regionRelative(Integer.parseInt(posKey.split(",")[0]));
 			int z = regionRelative(Integer.parseInt(posKey.split(",")[1]));
-			summary.chunks[x][z] = new ChunkSummary(chunksCompound.getCompound(posKey));
-			if (!biomeRemap.isEmpty() || !blockRemap.isEmpty()) summary.chunks[x][z].remap(biomeRemap, blockRemap);
+			chunks[bitForXZ(x, z)] = chunksCompound.getCompound(posKey);
 		}
+		RegionSummary summary = readChunks(chunks, biomePalette, blockPalette, biomeRemap, blockRemap);
+		summary.dirty();
 		return summary;
 	}
 
+	/**
+	 * @param chunks     the summary nbt of each chunk by region bit, null where absent.
+	 * @param biomeRemap a remapping of saved world palette indices, from {@link #readPalette}.
+	 * @param blockRemap a remapping of saved world palette indices, from {@link #readPalette}.
+	 */
+	public static RegionSummary readChunks(@Nullable NbtCompound[] chunks, RegistryPalette<Biome> biomePalette, RegistryPalette<Block> blockPalette, Int2IntMap biomeRemap, Int2IntMap blockRemap) {
+		RegionSummary summary = new RegionSummary(biomePalette, blockPalette);
+		boolean remap = !biomeRemap.isEmpty() || !blockRemap.isEmpty();
+		IntUnaryOperator biomeLookup = UInts.lookup(biomeRemap);
+		IntUnaryOperator blockLookup = UInts.lookup(blockRemap);
+		for (int bit = 0; bit < BITSET_SIZE; bit++) {
+			if (chunks[bit] == null) continue;
+			ChunkSummary chunk = new ChunkSummary(chunks[bit]);
+			if (remap) chunk.remap(biomeLookup, blockLookup);
+			summary.chunks.set(bit, chunk);
+		}
+		if (remap) summary.dirty(summary.bitSet());
+		summary.pack(summary.snapshot());
+		return summary;
+	}
+
+	/**
+	 * Opens a region lazily from a mapped region file - see {@link TerrainRegionFile#map}.
+	 * Only for files whose palette indices need no remapping, as chunks are read as they're used.
+	 */
+	public static RegionSummary ofLazy(TerrainRegionFile file, RegistryPalette<Biome> biomePalette, RegistryPalette<Block> blockPalette) {
+		RegionSummary summary = new RegionSummary(biomePalette, blockPalette);
+		summary.lazy = new LazyChunks(file);
+		return summary;
+	}
+
+	/**
+	 * Moves the snapshotted chunk summaries into a freshly packed region, leaving behind any taken with different layers.
+	 * Safe to run off the thread that owns the region, e.g. by a queued save - chunks put since the snapshot stay in place, as they take precedence.
+	 * Chunks that can't be packed are kept in place, so the previous packed region can be dropped.
+	 * Lazily opened regions are instead {@link #reopen reopened}, so their chunks are never all read.
+	 * Skipped if the region was repacked since the snapshot, so an older snapshot never replaces a newer packed region.
+	 */
+	public synchronized void pack(Snapshot snapshot) {
+		if (packed != snapshot.packed()) return;
+		ChunkSummary[] summaries = new ChunkSummary[BITSET_SIZE];
+		int[] layerHeights = null;
+		for (int bit = 0; bit < BITSET_SIZE; bit++) {
+			summaries[bit] = snapshot.get(bit);
+			if (layerHeights == null && summaries[bit] != null) layerHeights = summaries[bit].layerHeights;
+		}
+		if (layerHeights != null) {
+			PackedRegion newPacked = PackedRegion.pack(summaries, layerHeights, Surveyor.CONFIG.storage.offHeapTerrain);
+			for (int bit = 0; bit < BITSET_SIZE; bit++) {
+				if (summaries[bit] != null && !newPacked.contains(bit)) chunks.compareAndSet(bit, null, summaries[bit]);
+			}
+			packed = newPacked; // Published before clearing chunks, so readers never see neither
+			for (int bit = 0; bit < BITSET_SIZE; bit++) {
+				if (newPacked.contains(bit)) chunks.compareAndSet(bit, summaries[bit], null);
+			}
+		}
+	}
+
+	/**
+	 * Points a lazily opened region at its file as just written, dropping the written chunks from memory.
+	 *
+	 * @param written the region bits that were written from the snapshot.
+	 * @param file    the written region file, freshly mapped.
+	 */
+	public synchronized void reopen(Snapshot snapshot, BitSet written, TerrainRegionFile file) {
+		if (lazy != snapshot.lazy()) return;
+		lazy = new LazyChunks(file); // Published before clearing chunks, so readers never see neither
+		for (int bit = written.nextSetBit(0); bit >= 0; bit = written.nextSetBit(bit + 1)) {
+			if (snapshot.chunks()[bit] != null && file.contains(bit)) chunks.compareAndSet(bit, snapshot.chunks()[bit], null);
+		}
+	}
+
 	public boolean contains(ChunkPos pos) {
-		return chunks[regionRelative(pos.x)][regionRelative(pos.z)] != null;
+		return contains(bitForChunk(pos));
+	}
+
+	protected boolean contains(int bit) {
+		PackedRegion currentPacked = packed;
+		LazyChunks currentLazy = lazy;
+		return chunks.get(bit) != null || (currentPacked != null && currentPacked.contains(bit)) || (currentLazy != null && currentLazy.file().contains(bit));
 	}
 
 	public ChunkSummary get(ChunkPos pos) {
-		return chunks[regionRelative(pos.x)][regionRelative(pos.z)];
+		return get(bitForChunk(pos));
+	}
+
+	protected ChunkSummary get(int bit) {
+		return get(chunks.get(bit), packed, lazy, bit);
+	}
+
+	private static @Nullable ChunkSummary get(@Nullable ChunkSummary chunk, @Nullable PackedRegion packed, @Nullable LazyChunks lazy, int bit) {
+		if (chunk != null) return chunk;
+		ChunkSummary summary = packed == null ? null : packed.get(bit);
+		if (summary != null) return summary;
+		return lazy == null ? null : lazy.get(bit);
+	}
+
+	/**
+	 * Copies which summary the region holds for each chunk, without building any views of packed chunks.
+	 */
+	public Snapshot snapshot() {
+		ChunkSummary[] overlay = new ChunkSummary[BITSET_SIZE];
+		for (int bit = 0; bit < BITSET_SIZE; bit++) {
+			overlay[bit] = chunks.get(bit);
+		}
+		return new Snapshot(overlay, packed, lazy);
 	}
 
 	public BitSet bitSet() {
 		BitSet bitSet = new BitSet(BITSET_SIZE);
-		for (int x = 0; x < REGION_SIZE; x++) {
-			for (int z = 0; z < REGION_SIZE; z++) {
-				if (chunks[x][z] != null) bitSet.set(bitForXZ(x, z));
-			}
+		for (int bit = 0; bit < BITSET_SIZE; bit++) {
+			if (contains(bit)) bitSet.set(bit);
 		}
 		return bitSet;
 	}
 
-	public void putChunk(World world, WorldChunk chunk) {
+	public void putChunk(ChunkPos pos, ChunkSummary summary) {
 		if (Surveyor.CONFIG.terrain == SystemMode.FROZEN) return;
-		if (world.getHeight() == 0) return;
-		chunks[regionRelative(chunk.getPos().x)][regionRelative(chunk.getPos().z)] = new ChunkSummary(world, chunk, DimensionSupport.getSummaryLayers(world), biomePalette, blockPalette, !(world instanceof ServerWorld));
-		dirty();
+		chunks.set(bitForChunk(pos), summary);
+		BitSet bits = new BitSet(BITSET_SIZE);
+		bits.set(bitForChunk(pos));
+		dirty(bits);
+	}
+
+	private static <T> NbtList writeIds(RegistryPalette<T> palette, Registry<T> registry, int count) {
+		List<NbtElement> ids = new ArrayList<>();
+		RegistryPalette<T>.ValueView view = palette.view();
+		for (int i = 0; i < count; i++) {
+			Identifier savedId = palette.savedId(i);
+			ids.add(NbtString.of((savedId == null ? registry.getId(view.get(i)) : savedId).toString()));
+		}
+		return new NbtList(ids, NbtElement.STRING_TYPE);
+	}
+
+	private static <T> List<Integer> mapPalette(RegistryPalette<T> palette, int count, ToIntFunction<T> mapper) {
+		List<Integer> list = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			list.add(mapper.applyAsInt(palette.view().get(i)));
+		}
+		return list;
 	}
 
-	public NbtCompound writeNbt(DynamicRegistryManager manager, NbtCompound nbt, ChunkPos regionPos) {
+	/**
+	 * Writes the palettes shared by every region in a world - region data indexes into these.
+	 * Palettes are append-only, so writing the first entries of each is safe while more are added.
+	 *
+	 * @param biomes the number of biome entries to write, e.g. the palette size when the save began.
+	 * @param blocks the number of block entries to write, e.g. the palette size when the save began.
+	 */
+	public static NbtCompound writePaletteNbt(DynamicRegistryManager manager, NbtCompound nbt, RegistryPalette<Biome> biomePalette, int biomes, RegistryPalette<Block> blockPalette, int blocks) {
 		Registry<Biome> biomeRegistry = manager.get(RegistryKeys.BIOME);
 		Registry<Block> blockRegistry = manager.get(RegistryKeys.BLOCK);
-		nbt.put(KEY_BIOMES, new NbtList(mapIterable(biomePalette.view(), b -> NbtString.of(biomeRegistry.getId(b).toString())), NbtElement.STRING_TYPE));
-		nbt.put(KEY_BLOCKS, new NbtList(mapIterable(blockPalette.view(), b -> NbtString.of(blockRegistry.getId(b).toString())), NbtElement.STRING_TYPE));
-		nbt.putIntArray(KEY_BIOME_WATER, mapIterable(biomePalette.view(), Biome::getWaterColor));
-		nbt.putIntArray(KEY_BIOME_FOLIAGE, mapIterable(biomePalette.view(), Biome::getFoliageColor));
-		nbt.putIntArray(KEY_BIOME_GRASS, mapIterable(biomePalette.view(), b -> b.getGrassColorAt(0, 0)));
-		nbt.putIntArray(KEY_BLOCK_COLORS, mapIterable(blockPalette.view(), b -> b.getDefaultMapColor().color));
+		nbt.put(KEY_BIOMES, writeIds(biomePalette, biomeRegistry, biomes));
+		nbt.put(KEY_BLOCKS, writeIds(blockPalette, blockRegistry, blocks));
+		nbt.putIntArray(KEY_BIOME_WATER, mapPalette(biomePalette, biomes, Biome::getWaterColor));
+		nbt.putIntArray(KEY_BIOME_FOLIAGE, mapPalette(biomePalette, biomes, Biome::getFoliageColor));
+		nbt.putIntArray(KEY_BIOME_GRASS, mapPalette(biomePalette, biomes, b -> b.getGrassColorAt(0, 0)));
+		nbt.putIntArray(KEY_BLOCK_COLORS, mapPalette(blockPalette, blocks, b -> b.getDefaultMapColor().color));
+		return nbt;
+	}
+
+	public NbtCompound writeNbt(NbtCompound nbt, ChunkPos regionPos) {
 		NbtCompound chunksCompound = new NbtCompound();
-		for (int x = 0; x < REGION_SIZE; x++) {
-			for (int z = 0; z < REGION_SIZE; z++) {
-				if (chunks[x][z] != null) chunksCompound.put("%s,%s".formatted((regionPos.x << REGION_POWER) + x, (regionPos.z << REGION_POWER) + z), chunks[x][z].writeNbt(new NbtCompound()));
-			}
+		for (int bit = 0; bit < BITSET_SIZE; bit++) {
+			ChunkSummary summary = get(bit);
+			if (summary != null) chunksCompound.put("%s,%s".formatted((regionPos.x << REGION_POWER) + xForBit(bit), (regionPos.z << REGION_POWER) + zForBit(bit)), summary.writeNbt(new NbtCompound()));
 		}
 		nbt.put(KEY_CHUNKS, chunksCompound);
 		return nbt;
 	}
 
-	public BitSet readUpdatePacket(DynamicRegistryManager manager, S2CUpdateRegionPacket packet) {
+	/**
+	 * @param biomeLookup a lookup from sender biome palette indices to world palette indices, or null if they're the same.
+	 * @param blockLookup a lookup from sender block palette indices to world palette indices, or null if they're the same.
+	 */
+	public BitSet readUpdatePacket(S2CUpdateRegionPacket packet, @Nullable IntUnaryOperator biomeLookup, @Nullable IntUnaryOperator blockLookup, LayerInterner interner) {
 		if (Surveyor.CONFIG.terrain == SystemMode.FROZEN) return new BitSet();
-		Map<Integer, Integer> biomeRemap = new Int2IntArrayMap();
-		for (int i = 0; i < packet.biomePalette().size(); i++) {
-			biomeRemap.put(i, biomePalette.findOrAdd(packet.biomePalette().get(i)));
-		}
-
-		Map<Integer, Integer> blockRemap = new Int2IntArrayMap();
-		for (int i = 0; i < packet.blockPalette().size(); i++) {
-			blockRemap.put(i, blockPalette.findOrAdd(packet.blockPalette().get(i)));
-		}
 		int[] indices = packet.set().stream().toArray();
 		for (int i = 0; i < packet.chunks().size(); i++) {
 			ChunkSummary summary = packet.chunks().get(i);
-			summary.remap(biomeRemap, blockRemap);
-			this.chunks[xForBit(indices[i])][zForBit(indices[i])] = summary;
+			if (biomeLookup != null || blockLookup != null) summary.remap(biomeLookup == null ? IntUnaryOperator.identity() : biomeLookup, blockLookup == null ? IntUnaryOperator.identity() : blockLookup);
+			summary.intern(interner);
+			chunks.set(indices[i], summary);
 		}
-		dirty();
+		dirty(packet.set());
 		return packet.set();
 	}
 
 	public S2CUpdateRegionPacket createUpdatePacket(boolean shared, ChunkPos rPos, BitSet set) {
-		return new S2CUpdateRegionPacket(shared, rPos, mapIterable(biomePalette, i -> i), mapIterable(blockPalette, i -> i), set, set.stream().mapToObj(i -> chunks[xForBit(i)][zForBit(i)]).toList());
+		return new S2CUpdateRegionPacket(shared, rPos, set, set.stream().mapToObj(this::get).toList());
 	}
 
 	public RegistryPalette<Biome>.ValueView getBiomePalette() {
@@ -215,4 +377,62 @@ public class RegionSummary {
 	private void dirty() {
 		dirty = true;
 	}
+
+	/**
+	 * Marks chunks to be rewritten on the next save - e.g. when writing them failed.
+	 */
+	public void dirty(BitSet bits) {
+		synchronized (dirtyChunks) {
+			dirtyChunks.or(bits);
+		}
+		dirty();
+	}
+
+	/**
+	 * @return the chunks changed since the last call, clearing them.
+	 */
+	public BitSet takeDirtyChunks() {
+		synchronized (dirtyChunks) {
+			BitSet bits = (BitSet) dirtyChunks.clone();
+			dirtyChunks.clear();
+			return bits;
+		}
+	}
+
+	/**
+	 * The chunks of a region at a point in time. Stays readable while the region is modified or repacked.
+	 *
+	 * @param chunks chunk summaries by region bit, taking precedence over packed ones.
+	 * @param packed the packed summaries of the region at the time.
+	 * @param lazy   the lazily opened region file of the region at the time.
+	 */
+	public record Snapshot(@Nullable ChunkSummary[] chunks, @Nullable PackedRegion packed, @Nullable LazyChunks lazy) {
+		public @Nullable ChunkSummary get(int bit) {
+			return RegionSummary.get(chunks[bit], packed, lazy, bit);
+		}
+
+		public @Nullable NbtCompound writeNbt(int bit) {
+			ChunkSummary summary = get(bit);
+			return summary == null ? null : summary.writeNbt(new NbtCompound());
+		}
+	}
+
+	/**
+	 * A mapped region file, which chunks are inflated from on every read rather than held on the heap - see {@link #ofLazy}.
+	 */
+	public record LazyChunks(TerrainRegionFile file) {
+		/**
+		 * @return the chunk summary at the given region bit, inflated afresh from the mapped file.
+		 */
+		public @Nullable ChunkSummary get(int bit) {
+			if (!file.contains(bit)) return null;
+			try {
+				NbtCompound nbt = file.readChunk(bit);
+				return nbt == null ? null : new ChunkSummary(nbt);
+			} catch (IOException e) {
+				Surveyor.LOGGER.error("[Surveyor] Error reading mapped chunk {}.", bit, e);
+				return null;
+			}
+		}
+	}
 }
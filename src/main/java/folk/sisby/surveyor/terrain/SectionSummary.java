@@ -1,37 +1,126 @@
 package folk.sisby.surveyor.terrain;
 
+import net.minecraft.block.Block;
 import net.minecraft.block.BlockState;
 import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.util.collection.PaletteStorage;
 import net.minecraft.util.math.MathHelper;
 import net.minecraft.world.biome.Biome;
 import net.minecraft.world.biome.source.BiomeCoords;
 import net.minecraft.world.chunk.ChunkSection;
+import net.minecraft.world.chunk.IdListPalette;
 import net.minecraft.world.chunk.Palette;
 import net.minecraft.world.chunk.PalettedContainer;
 
-public record SectionSummary(Palette<BlockState> blockPalette, int[] blockIndices, Palette<RegistryEntry<Biome>> biomePalette, int[] biomeIndices) {
+/**
+ * A detached copy of a chunk section's block and biome containers.
+ * Keeps the packed palette storage rather than unpacking it, and decodes indices on read.
+ */
+public record SectionSummary(Palette<BlockState> blockPalette, PaletteStorage blockStorage, Palette<RegistryEntry<Biome>> biomePalette, PaletteStorage biomeStorage) {
+	public static final int MIXED = 0;
+	public static final int CLEAR = 1;
+	public static final int SOLID = 2;
+	public static final int MAX_CLASSIFIED_PALETTE = 256;
+
 	public static SectionSummary ofSection(ChunkSection section) {
 		if (section.isEmpty()) {
 			return null;
 		} else {
-			int[] blockIndices = new int[PalettedContainer.PaletteProvider.BLOCK_STATE.getContainerSize()];
-			section.getBlockStateContainer().data.storage.writePaletteIndices(blockIndices);
-			int[] biomeIndices = new int[PalettedContainer.PaletteProvider.BIOME.getContainerSize()];
-			((PalettedContainer<RegistryEntry<Biome>>) section.getBiomeContainer()).data.storage.writePaletteIndices(biomeIndices);
-			return new SectionSummary(
-				section.getBlockStateContainer().data.palette,
-				blockIndices,
-				((PalettedContainer<RegistryEntry<Biome>>) section.getBiomeContainer()).data.palette,
-				biomeIndices
-			);
+			return of(section.getBlockStateContainer(), (PalettedContainer<RegistryEntry<Biome>>) section.getBiomeContainer());
 		}
 	}
 
+	public static SectionSummary of(PalettedContainer<BlockState> blockContainer, PalettedContainer<RegistryEntry<Biome>> biomeContainer) {
+		PalettedContainer.Data<BlockState> blocks = blockContainer.data;
+		PalettedContainer.Data<RegistryEntry<Biome>> biomes = biomeContainer.data;
+		return new SectionSummary(
+			blocks.palette.copy(),
+			blocks.storage.copy(),
+			biomes.palette.copy(),
+			biomes.storage.copy()
+		);
+	}
+
+	/**
+	 * Fingerprints a live section, matching {@link #fingerprint()} for a summary of the same contents.
+	 *
+	 * @return the fingerprint of the section, or 0 if it is empty.
+	 */
+	public static int fingerprint(ChunkSection section) {
+		if (section.isEmpty()) return 0;
+		PalettedContainer.Data<BlockState> blocks = section.getBlockStateContainer().data;
+		PalettedContainer.Data<RegistryEntry<Biome>> biomes = ((PalettedContainer<RegistryEntry<Biome>>) section.getBiomeContainer()).data;
+		return fingerprint(blocks.palette, blocks.storage, biomes.palette, biomes.storage);
+	}
+
+	/**
+	 * A hash of the palettes and packed storage of the section, hashed as stored so fingerprinting never unpacks or allocates.
+	 * Sections with the same contents but differently ordered palettes can fingerprint differently, which only costs a needless re-summary.
+	 *
+	 * @return the fingerprint of the section - never 0, which marks empty sections.
+	 */
+	public int fingerprint() {
+		return fingerprint(blockPalette, blockStorage, biomePalette, biomeStorage);
+	}
+
+	private static int fingerprint(Palette<BlockState> blockPalette, PaletteStorage blockStorage, Palette<RegistryEntry<Biome>> biomePalette, PaletteStorage biomeStorage) {
+		int hash = 1;
+		if (!(blockPalette instanceof IdListPalette)) { // Otherwise indices are already raw IDs
+			for (int i = 0; i < blockPalette.getSize(); i++) {
+				hash = 31 * hash + Block.STATE_IDS.getRawId(blockPalette.get(i));
+			}
+		}
+		hash = hashStorage(hash, blockStorage);
+		if (!(biomePalette instanceof IdListPalette)) {
+			for (int i = 0; i < biomePalette.getSize(); i++) {
+				hash = 31 * hash + (biomePalette.get(i) instanceof RegistryEntry.Reference<Biome> reference ? reference.registryKey().getValue().hashCode() : 0);
+			}
+		}
+		hash = hashStorage(hash, biomeStorage);
+		return hash == 0 ? 1 : hash;
+	}
+
+	private static int hashStorage(int hash, PaletteStorage storage) {
+		hash = 31 * hash + storage.getElementBits();
+		for (long word : storage.getData()) {
+			hash = 31 * hash + Long.hashCode(word);
+		}
+		return hash;
+	}
+
 	public BlockState getBlockState(int relativeX, int y, int relativeZ) {
-		return blockPalette().get(blockIndices()[PalettedContainer.PaletteProvider.BLOCK_STATE.computeIndex(relativeX, y & 15, relativeZ)]);
+		return blockPalette.get(blockStorage.get(PalettedContainer.PaletteProvider.BLOCK_STATE.computeIndex(relativeX, y & 15, relativeZ)));
 	}
 
 	public RegistryEntry<Biome> getBiomeEntry(int relativeX, int y, int relativeZ, int bottomY, int topY) {
-		return biomePalette().get(biomeIndices()[PalettedContainer.PaletteProvider.BIOME.computeIndex(BiomeCoords.fromBlock(relativeX) & 3, MathHelper.clamp(BiomeCoords.fromBlock(y), BiomeCoords.fromBlock(bottomY), BiomeCoords.fromBlock(topY) - 1) & 3, BiomeCoords.fromBlock(relativeZ) & 3)]);
+		return biomePalette.get(getBiomeIndex(relativeX, y, relativeZ, bottomY, topY));
+	}
+
+	/**
+	 * @return the index in {@link #biomePalette} of the biome at the given position.
+	 */
+	public int getBiomeIndex(int relativeX, int y, int relativeZ, int bottomY, int topY) {
+		return biomeStorage.get(PalettedContainer.PaletteProvider.BIOME.computeIndex(BiomeCoords.fromBlock(relativeX) & 3, MathHelper.clamp(BiomeCoords.fromBlock(y), BiomeCoords.fromBlock(bottomY), BiomeCoords.fromBlock(topY) - 1) & 3, BiomeCoords.fromBlock(relativeZ) & 3));
+	}
+
+	/**
+	 * Classifies the section by every state in its palette, so scans can skip spans that can't hold a floor.
+	 *
+	 * @return CLEAR if every state is walkable with no map colour, SOLID if every state stops a walkspace with a map colour, otherwise MIXED.
+	 */
+	public int classify() {
+		int size = blockPalette.getSize();
+		if (size > MAX_CLASSIFIED_PALETTE) return MIXED;
+		boolean clear = true;
+		boolean solid = true;
+		for (int i = 0; i < size; i++) {
+			BlockState state = blockPalette.get(i);
+			if (state == null) return MIXED;
+			byte stateClass = StateClasses.of(state);
+			if (!StateClasses.isWalkable(stateClass) || !StateClasses.isClear(stateClass)) clear = false;
+			if (StateClasses.isWalkable(stateClass) || StateClasses.isWater(stateClass) || StateClasses.isClear(stateClass)) solid = false;
+			if (!clear && !solid) return MIXED;
+		}
+		return clear ? CLEAR : solid ? SOLID : MIXED;
 	}
 }
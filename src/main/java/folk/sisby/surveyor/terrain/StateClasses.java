@@ -0,0 +1,79 @@
+package folk.sisby.surveyor.terrain;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.MapColor;
+import net.minecraft.fluid.Fluid;
+import net.minecraft.fluid.Fluids;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.EmptyBlockView;
+
+/**
+ * A lazily filled table of what the terrain scanner needs to know about each block state, keyed by raw state ID.
+ * Entries are idempotent, so racing workers can fill the same slot without synchronisation.
+ */
+public class StateClasses {
+	public static final byte COMPUTED = 1;
+	public static final byte WALKABLE = 1 << 1;
+	public static final byte WATER = 1 << 2;
+	public static final byte CLEAR_COLOR = 1 << 3;
+
+	private static volatile byte[] table = new byte[0];
+
+	/**
+	 * @return the classification flags of the state - see {@link #isWalkable}, {@link #isWater} and {@link #isClear}.
+	 */
+	public static byte of(BlockState state) {
+		int id = Block.STATE_IDS.getRawId(state);
+		byte[] classes = table;
+		if (id < 0) return compute(state);
+		if (id >= classes.length) {
+			classes = grow(id);
+		}
+		byte flags = classes[id];
+		if (flags == 0) {
+			flags = compute(state);
+			classes[id] = flags;
+		}
+		return flags;
+	}
+
+	/**
+	 * Doesn't block movement and has no fluid - e.g. air, grass, carpets.
+	 */
+	public static boolean isWalkable(byte flags) {
+		return (flags & WALKABLE) != 0;
+	}
+
+	/**
+	 * Contains water, flowing or still.
+	 */
+	public static boolean isWater(byte flags) {
+		return (flags & WATER) != 0;
+	}
+
+	/**
+	 * Has no map colour - e.g. air, glass, barriers.
+	 */
+	public static boolean isClear(byte flags) {
+		return (flags & CLEAR_COLOR) != 0;
+	}
+
+	private static synchronized byte[] grow(int id) {
+		if (id >= table.length) {
+			byte[] grown = new byte[Math.max(id + 1, Block.STATE_IDS.size())];
+			System.arraycopy(table, 0, grown, 0, table.length);
+			table = grown;
+		}
+		return table;
+	}
+
+	private static byte compute(BlockState state) {
+		Fluid fluid = state.getFluidState().getFluid();
+		byte flags = COMPUTED;
+		if (!state.blocksMovement() && fluid.matchesType(Fluids.EMPTY)) flags |= WALKABLE;
+		if (fluid.matchesType(Fluids.WATER) || fluid.matchesType(Fluids.FLOWING_WATER)) flags |= WATER;
+		if (state.getMapColor(EmptyBlockView.INSTANCE, BlockPos.ORIGIN) == MapColor.CLEAR) flags |= CLEAR_COLOR;
+		return flags;
+	}
+}
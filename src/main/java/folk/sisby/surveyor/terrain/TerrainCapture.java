@@ -0,0 +1,145 @@
+package folk.sisby.surveyor.terrain;
+
+import folk.sisby.surveyor.Surveyor;
+import folk.sisby.surveyor.util.LocalPalette;
+import folk.sisby.surveyor.util.RegistryPalette;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.util.math.MathHelper;
+import net.minecraft.world.biome.Biome;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Summarises chunk snapshots on a shared, bounded pool of worker threads.
+ * Workers index each chunk into its own {@link LocalPalette}s, which are only merged into the world palettes by {@link #drain},
+ * so finished summaries are published on the thread that owns the world without workers contending on the palette lock.
+ * When the pool is saturated, captures are summarised on the submitting thread instead of being queued.
+ */
+public class TerrainCapture {
+	public static final int THREADS = MathHelper.clamp(Runtime.getRuntime().availableProcessors() / 4, 1, 4);
+	public static final int QUEUE_SIZE = 256;
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+	private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(THREADS, THREADS, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+		Thread thread = new Thread(runnable, "Surveyor Terrain Capture #" + THREAD_COUNT.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	}, new ThreadPoolExecutor.CallerRunsPolicy());
+
+	private final RegistryPalette<Biome> biomePalette;
+	private final RegistryPalette<Block> blockPalette;
+	private final Queue<Capture> completed = new ConcurrentLinkedQueue<>();
+	private final Set<CompletableFuture<Void>> pending = ConcurrentHashMap.newKeySet();
+	private final Long2LongMap latestTickets = new Long2LongOpenHashMap();
+	private long nextTicket = 0;
+
+	public TerrainCapture(RegistryPalette<Biome> biomePalette, RegistryPalette<Block> blockPalette) {
+		this.biomePalette = biomePalette;
+		this.blockPalette = blockPalette;
+	}
+
+	/**
+	 * Queues a snapshot to be summarised. Must be called from the thread that owns the world.
+	 */
+	public void submit(ChunkSnapshot snapshot, int[] layerHeights) {
+		submit(snapshot, null, layerHeights);
+	}
+
+	/**
+	 * Queues some columns of a snapshot to be summarised, to be patched over the published summary of the chunk.
+	 * Falls back to a full summary when an earlier capture of the chunk is still in flight, as it can't be patched.
+	 *
+	 * @param columns the X*16+Z columns to summarise, or null for the whole chunk.
+	 */
+	public void submit(ChunkSnapshot snapshot, @Nullable BitSet columns, int[] layerHeights) {
+		long key = snapshot.pos().toLong();
+		BitSet scanColumns = latestTickets.containsKey(key) ? null : columns;
+		long ticket = nextTicket++;
+		latestTickets.put(key, ticket);
+		CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
+			LocalPalette<Biome> biomes = new LocalPalette<>(biomePalette.view().registry());
+			LocalPalette<Block> blocks = new LocalPalette<>(blockPalette.view().registry());
+			ChunkSummary summary = null;
+			try {
+				summary = new ChunkSummary(snapshot, scanColumns, layerHeights, biomes::findOrAdd, blocks::findOrAdd);
+			} catch (Exception e) {
+				Surveyor.LOGGER.error("[Surveyor] Error summarising chunk {}.", snapshot.pos(), e);
+			}
+			completed.add(new Capture(snapshot, layerHeights, ticket, summary, scanColumns, biomes, blocks));
+		}, EXECUTOR);
+		pending.add(future);
+		future.whenComplete((v, t) -> pending.remove(future));
+	}
+
+	/**
+	 * Publishes every finished summary that hasn't been superseded by a later capture of the same chunk.
+	 * Each summary's local palettes are merged into the world palettes first, and its indices remapped to match.
+	 * Partial summaries the publisher can't patch are summarised again in full from the same snapshot, and published by a later drain.
+	 * Must be called from the thread that owns the world.
+	 *
+	 * @return the positions of the published chunks.
+	 */
+	public List<ChunkPos> drain(Publisher publisher) {
+		List<ChunkPos> published = new ArrayList<>();
+		List<Capture> rejected = new ArrayList<>();
+		Capture capture;
+		while ((capture = completed.poll()) != null) {
+			ChunkPos pos = capture.snapshot().pos();
+			long key = pos.toLong();
+			if (!latestTickets.containsKey(key) || latestTickets.get(key) != capture.ticket()) continue;
+			latestTickets.remove(key);
+			if (capture.summary() == null) continue;
+			IntUnaryOperator biomeLookup = capture.biomes().mergeInto(biomePalette);
+			IntUnaryOperator blockLookup = capture.blocks().mergeInto(blockPalette);
+			if (biomeLookup != null || blockLookup != null) capture.summary().remap(biomeLookup == null ? IntUnaryOperator.identity() : biomeLookup, blockLookup == null ? IntUnaryOperator.identity() : blockLookup);
+			if (publisher.publish(pos, capture.summary(), capture.columns())) {
+				published.add(pos);
+			} else if (capture.columns() != null) {
+				rejected.add(capture);
+			}
+		}
+		for (Capture retry : rejected) {
+			if (!latestTickets.containsKey(retry.snapshot().pos().toLong())) submit(retry.snapshot(), retry.layerHeights());
+		}
+		return published;
+	}
+
+	/**
+	 * Blocks until every submitted capture has finished, so a following {@link #drain} publishes all of them.
+	 */
+	public void await() {
+		for (CompletableFuture<Void> future : List.copyOf(pending)) {
+			future.join();
+		}
+	}
+
+	public boolean isEmpty() {
+		return pending.isEmpty() && completed.isEmpty();
+	}
+
+	public interface Publisher {
+		/**
+		 * @param columns the columns covered by the summary, or null if it covers the whole chunk.
+		 * @return whether the summary was published - false if a partial summary couldn't be patched over the chunk's summary.
+		 */
+		boolean publish(ChunkPos pos, ChunkSummary summary, @Nullable BitSet columns);
+	}
+
+	private record Capture(ChunkSnapshot snapshot, int[] layerHeights, long ticket, ChunkSummary summary, @Nullable BitSet columns, LocalPalette<Biome> biomes, LocalPalette<Block> blocks) {
+	}
+}
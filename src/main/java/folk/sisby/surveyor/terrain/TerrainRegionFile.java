@@ -0,0 +1,378 @@
+package folk.sisby.surveyor.terrain;
+
+import folk.sisby.surveyor.Surveyor;
+import folk.sisby.surveyor.util.ChunkUtil;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.util.math.ChunkPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A terrain region file that can be read and written a chunk at a time.
+ * Two header slots are followed by each chunk's summary nbt, deflated on its own and aligned to {@link #SECTOR_BYTES}.
+ * Each slot is aligned to {@link #SECTOR_BYTES} and holds:
+ * <pre>
+ * int magic, int version
+ * int revision           - incremented by each write, so the newest valid slot is read.
+ * int biomes, int blocks - the size of the world palettes the region indexes into, see {@link WorldTerrainSummary#PALETTE_FILE}.
+ * int[1024][2] chunks    - the first sector and deflated length of each chunk by region bit, with length 0 if absent.
+ * int checksum           - the CRC32 of the slot up to here.
+ * </pre>
+ * Rewritten chunks are appended and synced, then the slot not read from is pointed at them. Sectors are never written over,
+ * so a crash mid-write leaves the previous slot valid, pointing at the previous chunks.
+ * Files are compacted once more than half their sectors are stale.
+ * Whole rewrites go to a new generation of the file ({@code c.X.Z.N.sr}) rather than over the old one, as a mapped file can't be replaced on some platforms.
+ */
+public class TerrainRegionFile {
+	public static final String PREFIX = "c";
+	public static final String EXTENSION = "sr";
+	public static final int MAGIC = 0x53525247;
+	public static final int VERSION = 2;
+	public static final int SECTOR_BYTES = 512;
+	public static final int SLOT_CHUNKS_OFFSET = 5 * Integer.BYTES;
+	public static final int SLOT_CHECKSUM_OFFSET = SLOT_CHUNKS_OFFSET + 2 * RegionSummary.BITSET_SIZE * Integer.BYTES;
+	public static final int SLOT_BYTES = SLOT_CHECKSUM_OFFSET + Integer.BYTES;
+	public static final int SLOT_SECTORS = sectorsFor(SLOT_BYTES);
+	public static final int HEADER_SECTORS = 2 * SLOT_SECTORS;
+	public static final int HEADER_BYTES = HEADER_SECTORS * SECTOR_BYTES;
+
+	protected final int slot;
+	protected final int revision;
+	protected final int biomes;
+	protected final int blocks;
+	protected final int[] sectors;
+	protected final int[] lengths;
+	protected final @Nullable ByteBuffer data;
+
+	protected TerrainRegionFile(int slot, int revision, int biomes, int blocks, int[] sectors, int[] lengths, @Nullable ByteBuffer data) {
+		this.slot = slot;
+		this.revision = revision;
+		this.biomes = biomes;
+		this.blocks = blocks;
+		this.sectors = sectors;
+		this.lengths = lengths;
+		this.data = data;
+	}
+
+	/**
+	 * @return the first generation of a region's file - see {@link #list} for the current one.
+	 */
+	public static File file(File folder, ChunkPos regionPos) {
+		return new File(folder, "%s.%d.%d.%s".formatted(PREFIX, regionPos.x, regionPos.z, EXTENSION));
+	}
+
+	/**
+	 * @return the generation of a region file by its name, or -1 if it isn't one.
+	 */
+	public static int generation(File file) {
+		String[] split = file.getName().split("\\.");
+		if ((split.length != 4 && split.length != 5) || !split[0].equals(PREFIX) || !split[split.length - 1].equals(EXTENSION)) return -1;
+		try {
+			Integer.parseInt(split[1]);
+			Integer.parseInt(split[2]);
+			return split.length == 5 ? Integer.parseInt(split[3]) : 0;
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static File nextGeneration(File file) {
+		String[] split = file.getName().split("\\.");
+		return new File(file.getParentFile(), "%s.%s.%s.%d.%s".formatted(PREFIX, split[1], split[2], generation(file) + 1, EXTENSION));
+	}
+
+	/**
+	 * Finds the current generation of each region file in a folder, deleting older ones left behind while they were mapped.
+	 */
+	public static Map<ChunkPos, File> list(File folder) {
+		Map<ChunkPos, File> current = new HashMap<>();
+		File[] files = folder.listFiles(file -> generation(file) >= 0);
+		if (files == null) return current;
+		for (File file : files) {
+			ChunkPos regionPos = ChunkUtil.getRegionPos(file);
+			File other = current.get(regionPos);
+			File older = file;
+			if (other == null || generation(other) < generation(file)) {
+				current.put(regionPos, file);
+				older = other;
+			}
+			if (older != null && !older.delete()) Surveyor.LOGGER.warn("[Surveyor] Couldn't delete old terrain region file {}.", older.getName());
+		}
+		return current;
+	}
+
+	private static int sectorsFor(int bytes) {
+		return (bytes + SECTOR_BYTES - 1) / SECTOR_BYTES;
+	}
+
+	/**
+	 * Maps a region file read-only, so chunks are inflated straight from the OS page cache as they're read, without reading the file onto the heap.
+	 * Chunks are never written over and the file is never replaced, so the map stays valid - rewritten chunks are seen by mapping the file again.
+	 */
+	public static TerrainRegionFile map(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) throw new IOException("Region file is too large: " + channel.size() + " bytes");
+			MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			return parse(data, data);
+		}
+	}
+
+	/**
+	 * Reads a whole region file into memory. Chunks are inflated separately by {@link #readChunk}.
+	 */
+	public static TerrainRegionFile read(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) throw new IOException("Region file is too large: " + channel.size() + " bytes");
+			ByteBuffer data = ByteBuffer.allocate((int) channel.size());
+			readFully(channel, data, 0);
+			return parse(data.flip(), data);
+		}
+	}
+
+	/**
+	 * Reads the newest valid header slot.
+	 */
+	private static TerrainRegionFile parse(ByteBuffer header, @Nullable ByteBuffer data) throws IOException {
+		TerrainRegionFile newest = null;
+		IOException failure = null;
+		for (int slot = 0; slot < 2; slot++) {
+			try {
+				TerrainRegionFile parsed = parseSlot(header, slot, data);
+				if (newest == null || parsed.revision - newest.revision > 0) newest = parsed;
+			} catch (IOException e) {
+				if (failure == null) failure = e;
+			}
+		}
+		if (newest == null) throw failure;
+		return newest;
+	}
+
+	private static TerrainRegionFile parseSlot(ByteBuffer header, int slot, @Nullable ByteBuffer data) throws IOException {
+		int start = slotOffset(slot);
+		if (header.limit() < start + SLOT_BYTES) throw new IOException("Region file is truncated");
+		if (header.getInt(start) != MAGIC) throw new IOException("Not a terrain region file");
+		if (header.getInt(start + 4) != VERSION) throw new IOException("Unsupported terrain region file version " + header.getInt(start + 4));
+		CRC32 checksum = new CRC32();
+		checksum.update(header.slice(start, SLOT_CHECKSUM_OFFSET));
+		if ((int) checksum.getValue() != header.getInt(start + SLOT_CHECKSUM_OFFSET)) throw new IOException("Region file header slot %d is corrupt".formatted(slot));
+		int[] sectors = new int[RegionSummary.BITSET_SIZE];
+		int[] lengths = new int[RegionSummary.BITSET_SIZE];
+		for (int bit = 0; bit < RegionSummary.BITSET_SIZE; bit++) {
+			sectors[bit] = header.getInt(start + SLOT_CHUNKS_OFFSET + bit * 2 * Integer.BYTES);
+			lengths[bit] = header.getInt(start + SLOT_CHUNKS_OFFSET + bit * 2 * Integer.BYTES + Integer.BYTES);
+		}
+		return new TerrainRegionFile(slot, header.getInt(start + 8), header.getInt(start + 12), header.getInt(start + 16), sectors, lengths, data);
+	}
+
+	private static int slotOffset(int slot) {
+		return slot * SLOT_SECTORS * SECTOR_BYTES;
+	}
+
+	public int biomes() {
+		return biomes;
+	}
+
+	public int blocks() {
+		return blocks;
+	}
+
+	public boolean contains(int bit) {
+		return lengths[bit] > 0;
+	}
+
+	/**
+	 * @return the chunk summary nbt at the given region bit, or null if the region doesn't hold it.
+	 */
+	public @Nullable NbtCompound readChunk(int bit) throws IOException {
+		if (data == null || !contains(bit)) return null;
+		long start = (long) sectors[bit] * SECTOR_BYTES;
+		if (start + lengths[bit] > data.limit()) throw new IOException("Chunk %d runs past the end of the region file".formatted(bit));
+		try (DataInputStream stream = new DataInputStream(new InflaterInputStream(new BufferInputStream(data.slice((int) start, lengths[bit]))))) {
+			return NbtIo.read(stream);
+		}
+	}
+
+	private static byte[] deflate(NbtCompound nbt) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream stream = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+			NbtIo.write(nbt, stream);
+		}
+		return bytes.toByteArray();
+	}
+
+	private @Nullable byte[] payload(int bit) throws IOException {
+		if (data == null || !contains(bit)) return null;
+		long start = (long) sectors[bit] * SECTOR_BYTES;
+		if (start + lengths[bit] > data.limit()) throw new IOException("Chunk %d runs past the end of the region file".formatted(bit));
+		byte[] payload = new byte[lengths[bit]];
+		data.get((int) start, payload);
+		return payload;
+	}
+
+	/**
+	 * Writes the changed chunks of a region into its file, leaving the rest untouched.
+	 * The whole file is written when it doesn't exist yet, can't be read, or every chunk changed - to a new generation if it exists.
+	 *
+	 * @return the file now holding the region, which is a new generation after a whole rewrite or compaction.
+	 * @param chunks  the summary nbt of each chunk by region bit, or null where absent - called for every chunk on a full write.
+	 * @param changed the region bits to write, or null to write the whole file.
+	 * @param biomes  the size of the world biome palette the chunks index into.
+	 * @param blocks  the size of the world block palette the chunks index into.
+	 */
+	public static File write(File file, IntFunction<NbtCompound> chunks, @Nullable BitSet changed, int biomes, int blocks) throws IOException {
+		if (changed == null || changed.cardinality() == RegionSummary.BITSET_SIZE || !file.exists()) {
+			return replace(file, bit -> {
+				NbtCompound nbt = chunks.apply(bit);
+				return nbt == null ? null : deflate(nbt);
+			}, biomes, blocks);
+		}
+		boolean compact;
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			readFully(channel, header, 0);
+			TerrainRegionFile existing;
+			try {
+				existing = parse(header.flip(), null);
+			} catch (IOException e) { // Unreadable - replace it outright
+				channel.close();
+				return write(file, chunks, null, biomes, blocks);
+			}
+			long end = Math.max(HEADER_SECTORS, (channel.size() + SECTOR_BYTES - 1) / SECTOR_BYTES);
+			for (int bit = changed.nextSetBit(0); bit >= 0; bit = changed.nextSetBit(bit + 1)) {
+				NbtCompound nbt = chunks.apply(bit);
+				if (nbt == null) {
+					existing.lengths[bit] = 0;
+					continue;
+				}
+				byte[] payload = deflate(nbt);
+				writeFully(channel, ByteBuffer.wrap(payload), end * SECTOR_BYTES);
+				existing.sectors[bit] = (int) end;
+				existing.lengths[bit] = payload.length;
+				end += sectorsFor(payload.length);
+			}
+			channel.force(true); // Chunks must land before a header points at them
+			writeFully(channel, writeSlot(existing.revision + 1, biomes, blocks, existing.sectors, existing.lengths), slotOffset(existing.slot ^ 1));
+			channel.force(true);
+			long live = 0;
+			for (int length : existing.lengths) {
+				live += sectorsFor(length);
+			}
+			compact = end - HEADER_SECTORS > 2 * live;
+		}
+		if (compact) {
+			TerrainRegionFile existing = read(file);
+			return replace(file, existing::payload, biomes, blocks);
+		}
+		return file;
+	}
+
+	/**
+	 * Writes a whole region file as the next generation of the given one, then deletes the old one.
+	 * If the old file is still mapped where that isn't allowed, it's left for {@link #list} to delete.
+	 */
+	private static File replace(File file, PayloadFunction payloads, int biomes, int blocks) throws IOException {
+		if (!file.exists()) {
+			writeAll(file, payloads, biomes, blocks);
+			return file;
+		}
+		File next = nextGeneration(file);
+		writeAll(next, payloads, biomes, blocks);
+		try {
+			Files.deleteIfExists(file.toPath());
+		} catch (IOException ignored) { // Still mapped
+		}
+		return next;
+	}
+
+	/**
+	 * Writes a whole region file beside where it belongs, then moves it into place.
+	 */
+	private static void writeAll(File file, PayloadFunction payloads, int biomes, int blocks) throws IOException {
+		int[] sectors = new int[RegionSummary.BITSET_SIZE];
+		int[] lengths = new int[RegionSummary.BITSET_SIZE];
+		File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			int sector = HEADER_SECTORS;
+			for (int bit = 0; bit < RegionSummary.BITSET_SIZE; bit++) {
+				byte[] payload = payloads.apply(bit);
+				if (payload == null) continue;
+				writeFully(channel, ByteBuffer.wrap(payload), (long) sector * SECTOR_BYTES);
+				sectors[bit] = sector;
+				lengths[bit] = payload.length;
+				sector += sectorsFor(payload.length);
+			}
+			writeFully(channel, writeSlot(0, biomes, blocks, sectors, lengths), slotOffset(0));
+			channel.force(true); // The file must land before it replaces the old one
+		}
+		Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING); // Never over a mapped file - see replace
+	}
+
+	private static ByteBuffer writeSlot(int revision, int biomes, int blocks, int[] sectors, int[] lengths) {
+		ByteBuffer slot = ByteBuffer.allocate(SLOT_BYTES);
+		slot.putInt(MAGIC).putInt(VERSION).putInt(revision).putInt(biomes).putInt(blocks);
+		for (int bit = 0; bit < RegionSummary.BITSET_SIZE; bit++) {
+			slot.putInt(sectors[bit]).putInt(lengths[bit]);
+		}
+		CRC32 checksum = new CRC32();
+		checksum.update(slot.slice(0, SLOT_CHECKSUM_OFFSET));
+		slot.putInt((int) checksum.getValue());
+		return slot.rewind();
+	}
+
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) break;
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, position + buffer.position());
+		}
+	}
+
+	private interface PayloadFunction {
+		@Nullable byte[] apply(int bit) throws IOException;
+	}
+
+	private static class BufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		private BufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (!buffer.hasRemaining()) return -1;
+			int read = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, read);
+			return read;
+		}
+	}
+}
@@ -1,43 +1,99 @@
 package folk.sisby.surveyor.terrain;
 
+import folk.sisby.surveyor.PlayerSummary;
 import folk.sisby.surveyor.Surveyor;
+import folk.sisby.surveyor.SurveyorChunk;
 import folk.sisby.surveyor.SurveyorEvents;
 import folk.sisby.surveyor.SurveyorExploration;
 import folk.sisby.surveyor.WorldSummary;
 import folk.sisby.surveyor.config.SystemMode;
+import folk.sisby.surveyor.packet.S2CUpdatePalettePacket;
+import folk.sisby.surveyor.packet.S2CUpdateRegionPacket;
 import folk.sisby.surveyor.util.ChunkUtil;
 import folk.sisby.surveyor.util.RegistryPalette;
+import folk.sisby.surveyor.util.SaveQueue;
+import folk.sisby.surveyor.util.SenderPalette;
+import it.unimi.dsi.fastutil.ints.Int2IntMaps;
 import net.minecraft.block.Block;
+import net.minecraft.block.Blocks;
+import net.minecraft.entity.player.PlayerEntity;
 import net.minecraft.nbt.NbtCompound;
-import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtElement;
 import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.registry.Registry;
 import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.server.network.ServerPlayerEntity;
+import net.minecraft.server.world.ServerWorld;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.World;
 import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.BiomeKeys;
+import net.minecraft.world.chunk.ChunkStatus;
 import net.minecraft.world.chunk.WorldChunk;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 public class WorldTerrainSummary {
+	public static final String PALETTE_FILE = "terrain.dat";
+	public static final String INDEX_FILE = "terrain_index.dat";
+	public static final int PREFETCH_DISTANCE = 16;
+
 	protected final RegistryKey<World> worldKey;
 	protected final DynamicRegistryManager registryManager;
 	protected final Map<ChunkPos, RegionSummary> regions = new ConcurrentHashMap<>();
+	protected final Set<ChunkPos> unloaded = ConcurrentHashMap.newKeySet();
+	protected final Set<ChunkPos> unreadable = ConcurrentHashMap.newKeySet();
+	protected final Map<ChunkPos, CompletableFuture<RegionSummary>> loading = new ConcurrentHashMap<>();
+	/**
+	 * Work on the world's thread waiting for a region to be read in the background - see {@link #defer}.
+	 */
+	protected final Map<ChunkPos, List<Runnable>> deferred = new ConcurrentHashMap<>();
+	protected final Map<ChunkPos, BitSet> presence = new ConcurrentHashMap<>();
+	/**
+	 * The current generation of each region's file - see {@link TerrainRegionFile#list}. Regions without one use the first generation.
+	 */
+	protected final Map<ChunkPos, File> regionFiles = new ConcurrentHashMap<>();
+	protected final Map<ChunkPos, Long> lastAccess = new ConcurrentHashMap<>();
+	protected final AtomicLong accessClock = new AtomicLong();
+	protected final TerrainCapture capture;
+	protected final CaptureProfile profile;
+	protected final RegistryPalette<Biome> biomePalette;
+	protected final RegistryPalette<Block> blockPalette;
+	protected final SenderPalette senderBiomes;
+	protected final SenderPalette senderBlocks;
+	protected final LayerInterner interner = new LayerInterner();
+	protected @Nullable File folder = null;
+	protected volatile int savedBiomes = 0;
+	protected volatile int savedBlocks = 0;
+	protected volatile boolean indexDirty = false;
 
-	public WorldTerrainSummary(RegistryKey<World> worldKey, DynamicRegistryManager registryManager, Map<ChunkPos, RegionSummary> regions) {
+	public WorldTerrainSummary(RegistryKey<World> worldKey, DynamicRegistryManager registryManager) {
 		this.worldKey = worldKey;
 		this.registryManager = registryManager;
-		this.regions.putAll(regions);
+		this.biomePalette = new RegistryPalette<>(registryManager.get(RegistryKeys.BIOME));
+		this.blockPalette = new RegistryPalette<>(registryManager.get(RegistryKeys.BLOCK));
+		this.capture = new TerrainCapture(biomePalette, blockPalette);
+		this.senderBiomes = new SenderPalette(biomePalette);
+		this.senderBlocks = new SenderPalette(blockPalette);
+		this.profile = CaptureProfile.of(worldKey);
 	}
 
 	protected static ChunkPos regionPosOf(ChunkPos pos) {
@@ -59,80 +115,525 @@ public class WorldTerrainSummary {
 		return set;
 	}
 
+	protected File regionFile(File folder, ChunkPos regionPos) {
+		return regionFiles.getOrDefault(regionPos, TerrainRegionFile.file(folder, regionPos));
+	}
+
+	/**
+	 * The file a region's writes are queued under, whichever generation of its file is current.
+	 */
+	protected static File regionQueueFile(File folder, ChunkPos regionPos) {
+		return TerrainRegionFile.file(folder, regionPos);
+	}
+
+	protected static File legacyRegionFile(File folder, ChunkPos regionPos) {
+		return new File(folder, "c.%d.%d.dat".formatted(regionPos.x, regionPos.z));
+	}
+
+	/**
+	 * Indexes the region files of a dimension, loading them all up front unless terrain is loaded lazily.
+	 * Legacy region files are always loaded, so they're converted by the next save.
+	 */
 	public static WorldTerrainSummary load(World world, File folder) {
-		Map<ChunkPos, RegionSummary> regions = new HashMap<>();
-		ChunkUtil.getRegionNbt(folder, "c").forEach((pos, nbt) -> regions.put(pos, RegionSummary.readNbt(nbt, world.getRegistryManager(), pos)));
-		return new WorldTerrainSummary(world.getRegistryKey(), world.getRegistryManager(), regions);
+		WorldTerrainSummary summary = new WorldTerrainSummary(world.getRegistryKey(), world.getRegistryManager());
+		summary.folder = folder;
+		File paletteFile = new File(folder, PALETTE_FILE);
+		if (paletteFile.exists()) {
+			try {
+				NbtCompound paletteNbt = SaveQueue.readCompressed(paletteFile);
+				Registry<Biome> biomeRegistry = world.getRegistryManager().get(RegistryKeys.BIOME);
+				Registry<Block> blockRegistry = world.getRegistryManager().get(RegistryKeys.BLOCK);
+				RegionSummary.loadPalette(paletteNbt.getList(RegionSummary.KEY_BIOMES, NbtElement.STRING_TYPE), biomeRegistry, biomeRegistry.get(BiomeKeys.THE_VOID), summary.biomePalette, "biome", world.getRegistryKey().getValue());
+				RegionSummary.loadPalette(paletteNbt.getList(RegionSummary.KEY_BLOCKS, NbtElement.STRING_TYPE), blockRegistry, Blocks.AIR, summary.blockPalette, "block", world.getRegistryKey().getValue());
+				summary.savedBiomes = summary.biomePalette.view().size();
+				summary.savedBlocks = summary.blockPalette.view().size();
+			} catch (IOException e) {
+				Surveyor.LOGGER.error("[Surveyor] Error loading terrain palette file for {}.", world.getRegistryKey().getValue(), e);
+			}
+		}
+		summary.regionFiles.putAll(TerrainRegionFile.list(folder));
+		summary.unloaded.addAll(summary.regionFiles.keySet());
+		Set<ChunkPos> legacyRegions = new HashSet<>();
+		File[] legacyFiles = ChunkUtil.getRegionFiles(folder, TerrainRegionFile.PREFIX);
+		if (legacyFiles != null) {
+			for (File legacyFile : legacyFiles) {
+				ChunkPos regionPos = ChunkUtil.getRegionPos(legacyFile);
+				if (summary.unloaded.add(regionPos)) legacyRegions.add(regionPos);
+			}
+		}
+		File indexFile = new File(folder, INDEX_FILE);
+		if (indexFile.exists()) {
+			try {
+				NbtCompound indexNbt = SaveQueue.readCompressed(indexFile);
+				for (String posKey : indexNbt.getKeys()) {
+					ChunkPos regionPos = new ChunkPos(Integer.parseInt(posKey.split(",")[0]), Integer.parseInt(posKey.split(",")[1]));
+					if (summary.unloaded.contains(regionPos)) summary.presence.put(regionPos, BitSet.valueOf(indexNbt.getLongArray(posKey)));
+				}
+			} catch (IOException | NumberFormatException e) {
+				Surveyor.LOGGER.error("[Surveyor] Error loading terrain index file for {}.", world.getRegistryKey().getValue(), e);
+			}
+		}
+		if (summary.presence.size() != summary.unloaded.size()) summary.indexDirty = true;
+		if (!Surveyor.CONFIG.storage.lazyTerrain) {
+			summary.loadRegions(Set.copyOf(summary.unloaded));
+		} else if (!legacyRegions.isEmpty()) {
+			Surveyor.LOGGER.info("[Surveyor] Converting {} terrain regions for {} to the chunk-addressable format.", legacyRegions.size(), world.getRegistryKey().getValue());
+			summary.loadRegions(legacyRegions);
+		}
+		return summary;
+	}
+
+	protected @Nullable RegionSummary readRegion(ChunkPos regionPos) {
+		if (folder == null) return null;
+		SaveQueue.await(regionQueueFile(folder, regionPos));
+		return readRegionFile(regionPos);
+	}
+
+	/**
+	 * Reads a region without waiting for its queued writes - see {@link #readRegion}.
+	 */
+	protected @Nullable RegionSummary readRegionFile(ChunkPos regionPos) {
+		if (folder == null) return null;
+		File regionFile = regionFile(folder, regionPos);
+		if (!regionFile.exists()) { // Not yet converted
+			NbtCompound regionCompound = ChunkUtil.readRegionNbt(legacyRegionFile(folder, regionPos));
+			return regionCompound == null ? null : RegionSummary.readNbt(regionCompound, registryManager, biomePalette, blockPalette, Int2IntMaps.EMPTY_MAP, Int2IntMaps.EMPTY_MAP, regionPos);
+		}
+		try {
+			boolean map = Surveyor.CONFIG.storage.mappedTerrain;
+			TerrainRegionFile file = map ? TerrainRegionFile.map(regionFile) : TerrainRegionFile.read(regionFile);
+			if (file.biomes() > biomePalette.view().size() || file.blocks() > blockPalette.view().size()) {
+				Surveyor.LOGGER.warn("[Surveyor] Region file {} indexes into {} biomes and {} blocks, but the terrain palette only holds {} and {}.", regionFile.getName(), file.biomes(), file.blocks(), biomePalette.view().size(), blockPalette.view().size());
+			}
+			if (map) return RegionSummary.ofLazy(file, biomePalette, blockPalette);
+			NbtCompound[] chunks = new NbtCompound[RegionSummary.BITSET_SIZE];
+			for (int bit = 0; bit < RegionSummary.BITSET_SIZE; bit++) {
+				try {
+					chunks[bit] = file.readChunk(bit);
+				} catch (IOException e) {
+					Surveyor.LOGGER.error("[Surveyor] Error loading chunk {} of region file {}.", bit, regionFile.getName(), e);
+				}
+			}
+			return RegionSummary.readChunks(chunks, biomePalette, blockPalette, Int2IntMaps.EMPTY_MAP, Int2IntMaps.EMPTY_MAP);
+		} catch (IOException e) {
+			Surveyor.LOGGER.error("[Surveyor] Error loading region file {}.", regionFile.getName(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Renames an unreadable region's files out of the way before a new region replaces them, so their data is kept for recovery.
+	 */
+	protected void setAsideUnreadable(ChunkPos regionPos) {
+		if (folder == null) return;
+		for (File file : List.of(regionFile(folder, regionPos), legacyRegionFile(folder, regionPos))) {
+			if (!file.exists()) continue;
+			File aside = new File(file.getPath() + ".unreadable");
+			if (file.renameTo(aside)) {
+				Surveyor.LOGGER.warn("[Surveyor] Replacing unreadable terrain region file {} - the old file is kept as {}.", file.getName(), aside.getName());
+			} else {
+				Surveyor.LOGGER.error("[Surveyor] Couldn't set aside unreadable terrain region file {} - it will be overwritten.", file.getName());
+			}
+		}
+		unloaded.remove(regionPos);
+		presence.remove(regionPos);
+	}
+
+	/**
+	 * Loads many regions at once, reading and parsing them in parallel.
+	 */
+	protected void loadRegions(Collection<ChunkPos> regionPositions) {
+		ChunkUtil.forEachParallel(regionPositions, this::getLoadedRegion);
+	}
+
+	/**
+	 * @return the region, read from disk if it isn't loaded - or null if there's no such region.
+	 */
+	protected @Nullable RegionSummary getLoadedRegion(ChunkPos regionPos) {
+		RegionSummary region = regions.get(regionPos);
+		if (region == null && unloaded.contains(regionPos) && !unreadable.contains(regionPos)) region = loadRegion(regionPos);
+		if (region == null) region = regions.get(regionPos); // Loaded by another thread since
+		if (region != null) lastAccess.put(regionPos, accessClock.incrementAndGet());
+		return region;
+	}
+
+	/**
+	 * Reads an unloaded region outside the region map, so reads don't block access to other regions. Concurrent callers share one read.
+	 * A region that can't be read stays indexed as unloaded, and isn't read again.
+	 */
+	protected @Nullable RegionSummary loadRegion(ChunkPos regionPos) {
+		CompletableFuture<RegionSummary> future = new CompletableFuture<>();
+		CompletableFuture<RegionSummary> existing = loading.putIfAbsent(regionPos, future);
+		if (existing != null) return existing.join();
+		return completeLoad(regionPos, future, this::readRegion);
+	}
+
+	/**
+	 * Starts reading an unloaded region on the save threads, for callers on the world's thread that can't wait for it.
+	 *
+	 * @return a future completing with the region once it's loaded, or with null if there's no such region.
+	 */
+	public CompletableFuture<RegionSummary> prefetchRegion(ChunkPos regionPos) {
+		if (isRegionReady(regionPos)) return CompletableFuture.completedFuture(regions.get(regionPos));
+		CompletableFuture<RegionSummary> future = new CompletableFuture<>();
+		CompletableFuture<RegionSummary> existing = loading.putIfAbsent(regionPos, future);
+		if (existing != null) return existing;
+		if (folder == null) return CompletableFuture.completedFuture(completeLoad(regionPos, future, this::readRegionFile));
+		SaveQueue.readAsync(regionQueueFile(folder, regionPos), () -> completeLoad(regionPos, future, this::readRegionFile)); // Chained after queued writes, so save threads never block on each other
+		return future;
+	}
+
+	/**
+	 * @return whether {@link #getLoadedRegion} would return without reading from disk.
+	 */
+	protected boolean isRegionReady(ChunkPos regionPos) {
+		return regions.containsKey(regionPos) || !unloaded.contains(regionPos) || unreadable.contains(regionPos);
+	}
+
+	private @Nullable RegionSummary completeLoad(ChunkPos regionPos, CompletableFuture<RegionSummary> future, Function<ChunkPos, RegionSummary> reader) {
+		try {
+			RegionSummary region = regions.get(regionPos);
+			if (region == null && unloaded.contains(regionPos)) {
+				region = reader.apply(regionPos);
+				if (region != null) {
+					regions.put(regionPos, region);
+					unloaded.remove(regionPos);
+					presence.remove(regionPos);
+				} else {
+					unreadable.add(regionPos);
+				}
+			}
+			future.complete(region);
+			return region;
+		} catch (RuntimeException e) {
+			unreadable.add(regionPos);
+			future.complete(null);
+			Surveyor.LOGGER.error("[Surveyor] Error loading terrain region {}.", regionPos, e);
+			return null;
+		} finally {
+			loading.remove(regionPos, future);
+		}
 	}
 
 	public static void onChunkLoad(World world, WorldChunk chunk) {
 		WorldSummary summary = WorldSummary.of(world);
-		if (summary.terrain() != null && (!summary.terrain().contains(chunk.getPos()) || !ChunkUtil.airCount(chunk).equals(summary.terrain().get(chunk.getPos()).getAirCount()))) {
-			summary.terrain().put(world, chunk);
+		if (summary.terrain() != null) summary.terrain().checkChunk(world, chunk);
+	}
+
+	/**
+	 * Summarises a loaded chunk if its summary is missing or outdated.
+	 * If its region is still on disk, the check is deferred until it's been read rather than blocking the world's thread.
+	 */
+	protected void checkChunk(World world, WorldChunk chunk) {
+		ChunkPos pos = chunk.getPos();
+		if (defer(regionPosOf(pos), () -> {
+			if (world.getChunkManager().getChunk(pos.x, pos.z, ChunkStatus.FULL, false) instanceof WorldChunk loadedChunk) checkChunk(world, loadedChunk);
+		})) return;
+		ChunkSummary existing = get(pos);
+		if (existing == null || existing.isOutdated(chunk, DimensionSupport.getSummaryLayers(world))) {
+			put(world, chunk);
+		}
+	}
+
+	/**
+	 * Queues work on the world's thread until a region has been read, starting the read in the background.
+	 *
+	 * @return false if the region is already loaded, or doesn't exist, so the work should run now.
+	 */
+	protected boolean defer(ChunkPos regionPos, Runnable task) {
+		if (!isDeferring(regionPos)) return false;
+		deferred.computeIfAbsent(regionPos, k -> new ArrayList<>()).add(task);
+		prefetchRegion(regionPos);
+		return true;
+	}
+
+	/**
+	 * @return whether work on a region has to be deferred - until it's loaded, and after any work already deferred, so it keeps its order.
+	 */
+	protected boolean isDeferring(ChunkPos regionPos) {
+		return !isRegionReady(regionPos) || deferred.containsKey(regionPos);
+	}
+
+	/**
+	 * Runs deferred work for every region that's finished loading, in the order it was deferred.
+	 *
+	 * @param wait whether to finish loading every region with deferred work first - e.g. before saving.
+	 */
+	protected void runDeferred(boolean wait) {
+		for (ChunkPos regionPos : List.copyOf(deferred.keySet())) {
+			if (wait) getLoadedRegion(regionPos);
+			if (!isRegionReady(regionPos)) continue;
+			List<Runnable> tasks = deferred.remove(regionPos);
+			if (tasks != null) tasks.forEach(Runnable::run);
+		}
+	}
+
+	/**
+	 * Starts reading the regions around each player, so chunks loading in around them rarely have to wait for their region.
+	 */
+	protected void prefetchAround(World world) {
+		for (PlayerEntity player : world.getPlayers()) {
+			ChunkPos pos = player.getChunkPos();
+			for (int x = RegionSummary.chunkToRegion(pos.x - PREFETCH_DISTANCE); x <= RegionSummary.chunkToRegion(pos.x + PREFETCH_DISTANCE); x++) {
+				for (int z = RegionSummary.chunkToRegion(pos.z - PREFETCH_DISTANCE); z <= RegionSummary.chunkToRegion(pos.z + PREFETCH_DISTANCE); z++) {
+					prefetchRegion(new ChunkPos(x, z));
+				}
+			}
 		}
 	}
 
 	public static void onChunkUnload(World world, WorldChunk chunk) {
 		WorldSummary summary = WorldSummary.of(world);
-		if (summary.terrain() != null && chunk.needsSaving()) {
-			summary.terrain().put(world, chunk);
+		SurveyorChunk surveyorChunk = (SurveyorChunk) chunk;
+		if (summary.terrain() != null && (chunk.needsSaving() || surveyorChunk.surveyor$isFullyDirty() || !surveyorChunk.surveyor$getDirtyColumns().isEmpty())) { // Light changes from neighbours don't mark chunks for saving
+			boolean columnsOnly = !surveyorChunk.surveyor$isFullyDirty() && !surveyorChunk.surveyor$getDirtyColumns().isEmpty();
+			summary.terrain().put(world, chunk, columnsOnly ? (BitSet) surveyorChunk.surveyor$getDirtyColumns().clone() : null);
 		}
 	}
 
+	public static void onWorldTick(World world) {
+		WorldSummary summary = WorldSummary.of(world);
+		if (summary.terrain() == null) return;
+		if ((world.getTime() & 7) == 0) summary.terrain().prefetchAround(world);
+		summary.terrain().runDeferred(false);
+		summary.terrain().publishCaptures(world);
+	}
+
+	/**
+	 * Answered from the presence index for unloaded regions, so doesn't load them.
+	 */
 	public boolean contains(ChunkPos pos) {
 		ChunkPos regionPos = regionPosOf(pos);
-		return regions.containsKey(regionPos) && regions.get(regionPos).contains(pos);
+		if (!regions.containsKey(regionPos)) {
+			BitSet bits = presence.get(regionPos);
+			if (bits != null) return bits.get(RegionSummary.bitForChunk(pos));
+		}
+		RegionSummary region = getLoadedRegion(regionPos);
+		return region != null && region.contains(pos);
 	}
 
 	public ChunkSummary get(ChunkPos pos) {
-		ChunkPos regionPos = regionPosOf(pos);
-		return regions.containsKey(regionPos) ? regions.get(regionPos).get(pos) : null;
+		RegionSummary region = getLoadedRegion(regionPosOf(pos));
+		return region == null ? null : region.get(pos);
 	}
 
 	public RegionSummary getRegion(ChunkPos regionPos) {
-		return regions.computeIfAbsent(regionPos, k -> new RegionSummary(registryManager));
+		RegionSummary region = getLoadedRegion(regionPos);
+		if (region != null) return region;
+		if (unreadable.remove(regionPos)) setAsideUnreadable(regionPos);
+		lastAccess.put(regionPos, accessClock.incrementAndGet());
+		return regions.computeIfAbsent(regionPos, k -> new RegionSummary(biomePalette, blockPalette));
 	}
 
 	public RegistryPalette<Biome>.ValueView getBiomePalette(ChunkPos pos) {
-		ChunkPos regionPos = regionPosOf(pos);
-		return regions.get(regionPos).getBiomePalette();
+		return biomePalette.view();
 	}
 
 	public RegistryPalette<Block>.ValueView getBlockPalette(ChunkPos pos) {
-		ChunkPos regionPos = regionPosOf(pos);
-		return regions.get(regionPos).getBlockPalette();
+		return blockPalette.view();
 	}
 
+	private static List<Integer> rawIds(RegistryPalette<?> palette, int start, int end) {
+		List<Integer> ids = new ArrayList<>(Math.max(end - start, 0));
+		for (int i = start; i < end; i++) {
+			ids.add(palette.get(i));
+		}
+		return ids;
+	}
+
+	/**
+	 * @return the palette entries from the given sizes onwards, or null if there are none.
+	 */
+	public @Nullable S2CUpdatePalettePacket createPalettePacket(int biomeStart, int blockStart) {
+		int biomes = biomePalette.view().size();
+		int blocks = blockPalette.view().size();
+		if (biomes <= biomeStart && blocks <= blockStart) return null;
+		return new S2CUpdatePalettePacket(biomeStart, rawIds(biomePalette, biomeStart, biomes), blockStart, rawIds(blockPalette, blockStart, blocks));
+	}
+
+	/**
+	 * Sends a player chunks from a region, preceded by any palette entries their client hasn't been sent.
+	 */
+	public void sendRegion(ServerPlayerEntity player, boolean shared, ChunkPos regionPos, BitSet set) {
+		S2CUpdateRegionPacket packet = S2CUpdateRegionPacket.of(shared, regionPos, getRegion(regionPos), set);
+		((PlayerSummary.ServerPlayerEntitySummary) PlayerSummary.of(player)).syncPalettes(worldKey, this); // After creating the packet, so it covers every index the chunks hold
+		packet.send(player);
+	}
+
+	/**
+	 * @return false if the packet doesn't follow on from the entries received so far.
+	 */
+	public boolean readPalettePacket(S2CUpdatePalettePacket packet) {
+		boolean biomes = senderBiomes.append(packet.biomeStart(), packet.biomes());
+		boolean blocks = senderBlocks.append(packet.blockStart(), packet.blocks());
+		return biomes && blocks;
+	}
+
+	public BitSet readUpdatePacket(S2CUpdateRegionPacket packet) {
+		return getRegion(packet.regionPos()).readUpdatePacket(packet, senderBiomes.lookup(), senderBlocks.lookup(), interner);
+	}
+
+	/**
+	 * Answered from the presence index for unloaded regions, so only loads regions that predate it.
+	 */
 	public Map<ChunkPos, BitSet> bitSet(SurveyorExploration exploration) {
 		Map<ChunkPos, BitSet> map = new HashMap<>();
+		loadRegions(unloaded.stream().filter(pos -> !presence.containsKey(pos)).toList());
+		for (ChunkPos regionPos : Set.copyOf(unloaded)) {
+			BitSet bits = presence.get(regionPos);
+			if (bits != null) map.put(regionPos, (BitSet) bits.clone());
+		}
 		regions.forEach((p, r) -> map.put(p, r.bitSet()));
 		return exploration == null ? map : exploration.limitTerrainBitset(worldKey, map);
 	}
 
 	public void put(World world, WorldChunk chunk) {
+		put(world, chunk, null);
+	}
+
+	/**
+	 * @param columns the X*16+Z columns to re-summarise, or null to summarise the whole chunk.
+	 */
+	public void put(World world, WorldChunk chunk, @Nullable BitSet columns) {
 		if (Surveyor.CONFIG.terrain == SystemMode.FROZEN) return;
-		regions.computeIfAbsent(regionPosOf(chunk.getPos()), k -> new RegionSummary(registryManager)).putChunk(world, chunk);
-		SurveyorEvents.Invoke.terrainUpdated(world, chunk.getPos());
+		if (world.getHeight() == 0) return;
+		int[] layerHeights = DimensionSupport.getSummaryLayers(world);
+		ChunkPos regionPos = regionPosOf(chunk.getPos());
+		boolean ready = !isDeferring(regionPos);
+		if (!ready) prefetchRegion(regionPos);
+		ChunkSummary existing = ready ? get(chunk.getPos()) : null; // Summarised whole rather than waiting for the region
+		if (existing == null || !existing.hasLayers(layerHeights)) columns = null;
+		capture.submit(ChunkSnapshot.of(world, chunk, profile, !(world instanceof ServerWorld)), columns, layerHeights);
+		((SurveyorChunk) chunk).surveyor$clearDirty();
+	}
+
+	public void publishCaptures(World world) {
+		List<ChunkPos> published = capture.drain((pos, summary, columns) -> {
+			if (columns == null && defer(regionPosOf(pos), () -> {
+				publish(pos, summary, null);
+				SurveyorEvents.Invoke.terrainUpdated(world, List.of(pos));
+			})) return false;
+			return publish(pos, summary, columns);
+		});
+		SurveyorEvents.Invoke.terrainUpdated(world, published);
+	}
+
+	/**
+	 * @return false if a partial summary couldn't be patched over the chunk's summary - including when its region isn't loaded yet.
+	 */
+	protected boolean publish(ChunkPos pos, ChunkSummary summary, @Nullable BitSet columns) {
+		ChunkPos regionPos = regionPosOf(pos);
+		if (columns != null && isDeferring(regionPos)) return false;
+		RegionSummary region = getRegion(regionPos);
+		ChunkSummary existing = columns == null ? null : region.get(pos);
+		ChunkSummary merged = existing == null ? summary : existing.withColumns(summary, columns);
+		if (merged == null) return false; // Replaced since the capture was queued - summarise the whole snapshot instead
+		merged.intern(interner);
+		region.putChunk(pos, merged);
+		return true;
+	}
+
+	protected boolean isPaletteDirty() {
+		return biomePalette.view().size() != savedBiomes || blockPalette.view().size() != savedBlocks;
 	}
 
+	/**
+	 * Queues every dirty region to be written by the {@link SaveQueue}, which serialises them off this thread.
+	 * Regions are marked clean when queued, and marked dirty again if their write fails.
+	 */
 	public int save(World world, File folder) {
+		runDeferred(true);
+		capture.await();
+		publishCaptures(world);
+		runDeferred(true); // Captures of regions that were still loading
+		CompletableFuture<Void> paletteWrite = CompletableFuture.completedFuture(null);
+		if (isPaletteDirty()) { // Written first, as regions may index into new entries
+			int biomes = biomePalette.view().size();
+			int blocks = blockPalette.view().size();
+			savedBiomes = biomes;
+			savedBlocks = blocks;
+			DynamicRegistryManager manager = world.getRegistryManager();
+			paletteWrite = SaveQueue.write(new File(folder, PALETTE_FILE), () -> RegionSummary.writePaletteNbt(manager, new NbtCompound(), biomePalette, biomes, blockPalette, blocks), e -> {
+				Surveyor.LOGGER.error("[Surveyor] Error writing terrain palette file for {}.", world.getRegistryKey().getValue(), e);
+				savedBiomes = 0;
+				savedBlocks = 0;
+			});
+		}
 		List<ChunkPos> savedRegions = new ArrayList<>();
-		regions.forEach((pos, summary) -> {
-			if (!summary.isDirty()) return;
+		for (Map.Entry<ChunkPos, RegionSummary> entry : regions.entrySet()) {
+			ChunkPos pos = entry.getKey();
+			RegionSummary summary = entry.getValue();
+			if (!summary.isDirty()) continue;
 			savedRegions.add(pos);
-			NbtCompound regionCompound = summary.writeNbt(world.getRegistryManager(), new NbtCompound(), pos);
-			File regionFile = new File(folder, "c.%d.%d.dat".formatted(pos.x, pos.z));
-			try {
-				NbtIo.writeCompressed(regionCompound, regionFile);
-				summary.dirty = false;
-			} catch (IOException e) {
-				Surveyor.LOGGER.error("[Surveyor] Error writing region summary file {}.", regionFile.getName(), e);
-			}
-		});
+			summary.dirty = false;
+			BitSet changed = summary.takeDirtyChunks();
+			RegionSummary.Snapshot snapshot = summary.snapshot();
+			int biomes = biomePalette.view().size();
+			int blocks = blockPalette.view().size();
+			File queueFile = regionQueueFile(folder, pos);
+			File legacyFile = legacyRegionFile(folder, pos);
+			SaveQueue.queue(queueFile, f -> {
+				File written = TerrainRegionFile.write(regionFile(folder, pos), snapshot::writeNbt, changed, biomes, blocks);
+				regionFiles.put(pos, written);
+				Files.deleteIfExists(legacyFile.toPath());
+				if (snapshot.lazy() != null) {
+					summary.reopen(snapshot, changed, TerrainRegionFile.map(written));
+				} else {
+					summary.pack(snapshot);
+				}
+			}, e -> {
+				Surveyor.LOGGER.error("[Surveyor] Error writing region summary file {}.", queueFile.getName(), e);
+				summary.dirty(changed);
+			}, paletteWrite);
+		}
+		if (!savedRegions.isEmpty() || indexDirty) saveIndex(world, folder);
+		if (Surveyor.CONFIG.debugMode && !savedRegions.isEmpty()) Surveyor.LOGGER.info("[Surveyor] {}% of terrain layers in {} are shared", Math.round(interner.dedupRatio() * 100), worldKey.getValue());
+		if (Surveyor.CONFIG.storage.lazyTerrain) evict(Surveyor.CONFIG.storage.loadedTerrainRegions);
 		return savedRegions.size();
 	}
 
+	/**
+	 * Writes which chunks each region holds, so unloaded regions can answer {@link #contains} and {@link #bitSet}.
+	 */
+	protected void saveIndex(World world, File folder) {
+		Map<ChunkPos, BitSet> index = new HashMap<>(presence);
+		regions.forEach((pos, region) -> {
+			BitSet bits = region.bitSet();
+			if (!bits.isEmpty()) index.put(pos, bits);
+		});
+		indexDirty = false;
+		SaveQueue.write(new File(folder, INDEX_FILE), () -> {
+			NbtCompound indexNbt = new NbtCompound();
+			index.forEach((pos, bits) -> indexNbt.putLongArray("%d,%d".formatted(pos.x, pos.z), bits.toLongArray()));
+			return indexNbt;
+		}, e -> {
+			Surveyor.LOGGER.error("[Surveyor] Error writing terrain index file for {}.", world.getRegistryKey().getValue(), e);
+			indexDirty = true;
+		});
+	}
+
+	/**
+	 * Unloads the least recently used saved regions until at most the given number are loaded.
+	 */
+	protected void evict(int maxRegions) {
+		if (regions.size() <= maxRegions) return;
+		List<ChunkPos> leastRecent = new ArrayList<>(regions.keySet());
+		leastRecent.sort(Comparator.comparingLong(pos -> lastAccess.getOrDefault(pos, 0L)));
+		for (ChunkPos regionPos : leastRecent) {
+			if (regions.size() <= maxRegions) break;
+			RegionSummary region = regions.get(regionPos);
+			if (region == null || region.isDirty() || (folder != null && SaveQueue.isPending(regionQueueFile(folder, regionPos)))) continue; // Keep regions with writes in flight, in case they fail
+			BitSet bits = region.bitSet();
+			if (!bits.isEmpty()) { // Empty regions were never written, so have nothing to reload
+				presence.put(regionPos, bits);
+				unloaded.add(regionPos);
+			}
+			regions.remove(regionPos);
+			lastAccess.remove(regionPos);
+		}
+	}
+
 	public boolean isDirty() {
-		return regions.values().stream().anyMatch(RegionSummary::isDirty);
+		return !capture.isEmpty() || !deferred.isEmpty() || isPaletteDirty() || indexDirty || regions.values().stream().anyMatch(RegionSummary::isDirty);
 	}
 }
@@ -2,15 +2,20 @@ package folk.sisby.surveyor.util;
 
 import folk.sisby.surveyor.Surveyor;
 import net.minecraft.nbt.NbtCompound;
-import net.minecraft.nbt.NbtIo;
+import net.minecraft.util.Util;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.chunk.Chunk;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 public class ChunkUtil {
 	public static Integer airCount(Chunk chunk) {
@@ -18,9 +23,13 @@ public class ChunkUtil {
 	}
 
 	public static File[] getRegionFiles(File folder, String prefix) {
+		return getRegionFiles(folder, prefix, "dat");
+	}
+
+	public static File[] getRegionFiles(File folder, String prefix, String extension) {
 		return folder.listFiles((file, name) -> {
 			String[] split = name.split("\\.");
-			if (split.length == 4 && split[0].equals(prefix) && split[3].equals("dat")) {
+			if (split.length == 4 && split[0].equals(prefix) && split[3].equals(extension)) {
 				try {
 					Integer.parseInt(split[1]);
 					Integer.parseInt(split[2]);
@@ -32,21 +41,48 @@ public class ChunkUtil {
 		});
 	}
 
+	public static ChunkPos getRegionPos(File regionFile) {
+		String[] split = regionFile.getName().split("\\.");
+		return new ChunkPos(Integer.parseInt(split[1]), Integer.parseInt(split[2]));
+	}
+
+	public static @Nullable NbtCompound readRegionNbt(File regionFile) {
+		try {
+			return SaveQueue.readCompressed(regionFile);
+		} catch (IOException e) {
+			Surveyor.LOGGER.error("[Surveyor] Error loading region nbt file {}.", regionFile.getName(), e);
+			return null;
+		}
+	}
+
 	public static Map<ChunkPos, NbtCompound> getRegionNbt(File folder, String prefix) {
+		return readRegions(folder, prefix, (pos, nbt) -> nbt);
+	}
+
+	/**
+	 * Reads, inflates and parses every region file with the given prefix in parallel on the worker executor.
+	 * Files that fail to read are logged and skipped.
+	 *
+	 * @param reader parses a region's nbt - called concurrently, so must be thread-safe.
+	 */
+	public static <T> Map<ChunkPos, T> readRegions(File folder, String prefix, BiFunction<ChunkPos, NbtCompound, T> reader) {
 		File[] regionFiles = getRegionFiles(folder, prefix);
-		Map<ChunkPos, NbtCompound> regions = new HashMap<>();
-		if (regionFiles != null) {
-			for (File regionFile : regionFiles) {
-				ChunkPos regionPos = new ChunkPos(Integer.parseInt(regionFile.getName().split("\\.")[1]), Integer.parseInt(regionFile.getName().split("\\.")[2]));
-				NbtCompound regionCompound = null;
-				try {
-					regionCompound = NbtIo.readCompressed(regionFile);
-				} catch (IOException e) {
-					Surveyor.LOGGER.error("[Surveyor] Error loading region nbt file {}.", regionFile.getName(), e);
-				}
-				if (regionCompound != null) regions.put(regionPos, regionCompound);
+		Map<ChunkPos, T> regions = new ConcurrentHashMap<>();
+		if (regionFiles == null) return regions;
+		forEachParallel(Arrays.asList(regionFiles), regionFile -> {
+			NbtCompound regionCompound = readRegionNbt(regionFile);
+			if (regionCompound != null) {
+				ChunkPos regionPos = getRegionPos(regionFile);
+				regions.put(regionPos, reader.apply(regionPos, regionCompound));
 			}
-		}
+		});
 		return regions;
 	}
+
+	/**
+	 * Runs an action for every element on the worker executor, blocking until all have finished.
+	 */
+	public static <T> void forEachParallel(Collection<T> elements, Consumer<T> action) {
+		CompletableFuture.allOf(elements.stream().map(element -> CompletableFuture.runAsync(() -> action.accept(element), Util.getMainWorkerExecutor())).toArray(CompletableFuture[]::new)).join();
+	}
 }
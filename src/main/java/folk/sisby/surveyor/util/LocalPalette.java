@@ -0,0 +1,55 @@
+package folk.sisby.surveyor.util;
+
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import net.minecraft.registry.Registry;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * An unsynchronised palette of registry entries for a single capture, so workers don't contend on the shared {@link RegistryPalette}.
+ * Merged into the shared palette once, when the capture is published - see {@link #mergeInto}.
+ */
+public class LocalPalette<T> {
+	private final Registry<T> registry;
+	private final Int2IntMap inverse = new Int2IntOpenHashMap();
+	private final IntList raw = new IntArrayList();
+
+	public LocalPalette(Registry<T> registry) {
+		this.registry = registry;
+		this.inverse.defaultReturnValue(-1);
+	}
+
+	public int findOrAdd(T value) {
+		int rawId = registry.getRawId(value);
+		int index = inverse.get(rawId);
+		if (index == -1) {
+			index = raw.size();
+			raw.add(rawId);
+			inverse.put(rawId, index);
+		}
+		return index;
+	}
+
+	public int size() {
+		return raw.size();
+	}
+
+	/**
+	 * Adds every entry to a shared palette. Must be called from one thread at a time.
+	 *
+	 * @return a lookup of local indices to shared palette indices, or null if every index is unchanged.
+	 */
+	public @Nullable IntUnaryOperator mergeInto(RegistryPalette<T> palette) {
+		int[] table = new int[raw.size()];
+		boolean changed = false;
+		for (int i = 0; i < table.length; i++) {
+			table[i] = palette.findOrAdd(raw.getInt(i));
+			if (table[i] != i) changed = true;
+		}
+		return changed ? i -> table[i] : null;
+	}
+}
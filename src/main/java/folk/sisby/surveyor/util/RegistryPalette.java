@@ -1,49 +1,88 @@
 package folk.sisby.surveyor.util;
 
 import folk.sisby.surveyor.Surveyor;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntIterable;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntIterators;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
 import net.minecraft.registry.DefaultedRegistry;
 import net.minecraft.registry.Registry;
+import net.minecraft.util.Identifier;
 import net.minecraft.util.collection.IndexedIterable;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * An append-only palette of registry entries, sized by the entries actually used rather than the whole registry.
+ * Indices are never reassigned, so readers may look entries up without locking.
+ */
 public class RegistryPalette<T> implements IntIterable {
+	private static final int INITIAL_CAPACITY = 16;
+
 	private final Registry<T> registry;
-	private final int[] raw;
-	private final int[] inverse;
+	private final Int2IntMap inverse = new Int2IntOpenHashMap();
+	private final Int2ObjectMap<Identifier> savedIds = new Int2ObjectOpenHashMap<>();
 	private final ValueView valueView;
-	private int size;
+	private volatile int[] raw = new int[INITIAL_CAPACITY];
+	private volatile int size;
 
 	public RegistryPalette(Registry<T> registry) {
 		this.registry = registry;
-		this.raw = ArrayUtil.ofSingle(-1, registry.size());
-		this.inverse = ArrayUtil.ofSingle(-1, registry.size());
+		this.inverse.defaultReturnValue(-1);
 		this.size = 0;
 		this.valueView = new ValueView();
 	}
 
-	public int find(int value) {
-		return inverse[value];
+	public synchronized int find(int value) {
+		return inverse.get(value);
 	}
 
-	private int add(int value) {
-		raw[size] = value;
-		inverse[value] = size;
+	private synchronized int add(int value, boolean findable) {
+		int index = size;
+		if (index == raw.length) raw = Arrays.copyOf(raw, index * 2);
+		raw[index] = value;
 		T object = registry.get(value);
 		valueView.values.add(object);
-		size++;
-		return size - 1;
+		if (findable) {
+			inverse.put(value, index);
+			valueView.inverse.put(object, index);
+		}
+		size = index + 1;
+		return index;
 	}
 
-	public int findOrAdd(int value) {
+	/**
+	 * Appends an entry that is never found by value, so a saved palette keeps every index - even where entries went missing or now coincide.
+	 *
+	 * @param savedId the identifier to save the entry as, in place of the value's - so a missing entry survives until it's back.
+	 * @return the entry's index.
+	 */
+	public synchronized int addPlaceholder(T value, @Nullable Identifier savedId) {
+		int index = add(registry.getRawId(value), false);
+		if (savedId != null) savedIds.put(index, savedId);
+		return index;
+	}
+
+	/**
+	 * @return the identifier the entry at the index was saved as, if it differs from the entry's value.
+	 */
+	public synchronized @Nullable Identifier savedId(int index) {
+		return savedIds.get(index);
+	}
+
+	public synchronized int findOrAdd(int value) {
 		int index = find(value);
-		return index == -1 ? add(value) : index;
+		return index == -1 ? add(value, true) : index;
 	}
 
 	public int findOrAdd(T value) {
@@ -55,7 +94,8 @@ public class RegistryPalette<T> implements IntIterable {
 	}
 
 	public @NotNull IntIterator iterator() {
-		return IntIterators.wrap(raw, 0, size);
+		int currentSize = size;
+		return IntIterators.wrap(raw, 0, currentSize);
 	}
 
 	public ValueView view() {
@@ -64,7 +104,12 @@ public class RegistryPalette<T> implements IntIterable {
 
 	public class ValueView implements IndexedIterable<T> {
 		private final T defaultValue = registry instanceof DefaultedRegistry<T> defreg ? defreg.get(defreg.getDefaultId()) : registry.get(0);
-		private final List<T> values = new ArrayList<>();
+		private final List<T> values = new CopyOnWriteArrayList<>();
+		private final Reference2IntMap<T> inverse = new Reference2IntOpenHashMap<>();
+
+		private ValueView() {
+			inverse.defaultReturnValue(-1);
+		}
 
 		public Registry<T> registry() {
 			return registry;
@@ -81,7 +126,9 @@ public class RegistryPalette<T> implements IntIterable {
 
 		@Override
 		public int getRawId(T value) {
-			return values.indexOf(value);
+			synchronized (RegistryPalette.this) {
+				return inverse.getInt(value);
+			}
 		}
 
 		@Override
@@ -0,0 +1,114 @@
+package folk.sisby.surveyor.util;
+
+import folk.sisby.surveyor.Surveyor;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtIo;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Serialises, compresses and writes summary files on background threads, so saving doesn't stall the thread that owns the world.
+ * Writes to the same file always land in the order they were queued, and reads through {@link #readCompressed} wait for them.
+ * Callers should clear their dirty flags when queueing a write, and set them again if it fails.
+ */
+public class SaveQueue {
+	public static final int THREADS = 2;
+	private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+	private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, runnable -> {
+		Thread thread = new Thread(runnable, "Surveyor Save #" + THREAD_COUNT.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+	private static final Map<File, CompletableFuture<Void>> PENDING = new ConcurrentHashMap<>();
+
+	/**
+	 * Queues a file to be written once any earlier write to it, and every given dependency, has finished.
+	 *
+	 * @param nbt     builds the file contents - called on a background thread, so must only read snapshotted data.
+	 * @param onError logs the failure and restores the caller's dirty state, so the file is written again next save.
+	 * @param after   writes that must land first, e.g. a palette the file indexes into. If any fails, the file isn't written and {@code onError} is called instead.
+	 * @return a future completing once the file has been written, or completing exceptionally if it wasn't.
+	 */
+	public static CompletableFuture<Void> write(File file, Supplier<NbtCompound> nbt, Consumer<Exception> onError, CompletableFuture<?>... after) {
+		return queue(file, f -> NbtIo.writeCompressed(nbt.get(), f), onError, after);
+	}
+
+	/**
+	 * Queues a file to be written by the given writer, in the same order as {@link #write}.
+	 */
+	public static CompletableFuture<Void> queue(File file, FileWriter writer, Consumer<Exception> onError, CompletableFuture<?>... after) {
+		CompletableFuture<Void> future = PENDING.compute(file, (f, previous) -> {
+			CompletableFuture<?>[] dependencies = new CompletableFuture<?>[after.length + 1];
+			dependencies[0] = previous == null ? CompletableFuture.completedFuture(null) : previous.handle((v, t) -> null); // Earlier writes only order this one - it replaces them either way
+			System.arraycopy(after, 0, dependencies, 1, after.length);
+			return CompletableFuture.allOf(dependencies).<Void>handleAsync((v, failure) -> {
+				if (failure != null) {
+					onError.accept(new IOException("Skipped writing %s, as a file it depends on failed to write.".formatted(file.getName()), failure));
+					throw new CompletionException(failure);
+				}
+				try {
+					writer.write(file);
+				} catch (IOException | RuntimeException e) {
+					onError.accept(e);
+					throw new CompletionException(e);
+				}
+				return null;
+			}, EXECUTOR);
+		});
+		future.whenComplete((v, t) -> PENDING.remove(file, future));
+		return future;
+	}
+
+	public static boolean isPending(File file) {
+		return PENDING.containsKey(file);
+	}
+
+	/**
+	 * Blocks until every queued write to the file has landed.
+	 */
+	public static void await(File file) {
+		CompletableFuture<Void> pending = PENDING.get(file);
+		if (pending != null) pending.handle((v, t) -> null).join(); // Failures are reported through onError
+	}
+
+	/**
+	 * Reads a file on a background thread once every queued write to it has landed, without blocking the caller or a save thread.
+	 */
+	public static <T> CompletableFuture<T> readAsync(File file, Supplier<T> reader) {
+		CompletableFuture<Void> pending = PENDING.get(file);
+		return (pending == null ? CompletableFuture.<Void>completedFuture(null) : pending.handle((v, t) -> null)).thenApplyAsync(v -> reader.get(), EXECUTOR);
+	}
+
+	/**
+	 * Reads a file once every queued write to it has landed.
+	 */
+	public static NbtCompound readCompressed(File file) throws IOException {
+		await(file);
+		return NbtIo.readCompressed(file);
+	}
+
+	/**
+	 * Blocks until every queued write has landed - e.g. when the server stops.
+	 */
+	public static void flush() {
+		List<CompletableFuture<Void>> pending = List.copyOf(PENDING.values());
+		if (pending.isEmpty()) return;
+		CompletableFuture.allOf(pending.stream().map(f -> f.handle((v, t) -> null)).toArray(CompletableFuture[]::new)).join();
+		Surveyor.LOGGER.info("[Surveyor] Finished writing {} queued files.", pending.size());
+	}
+
+	public interface FileWriter {
+		void write(File file) throws IOException;
+	}
+}
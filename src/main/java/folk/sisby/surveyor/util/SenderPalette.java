@@ -0,0 +1,51 @@
+package folk.sisby.surveyor.util;
+
+import folk.sisby.surveyor.util.uints.UInts;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A sender's append-only palette, received a delta at a time, mapped onto a local palette.
+ */
+public class SenderPalette {
+	private final RegistryPalette<?> palette;
+	private final Int2IntMap remap = new Int2IntOpenHashMap();
+	private int size = 0;
+
+	public SenderPalette(RegistryPalette<?> palette) {
+		this.palette = palette;
+	}
+
+	/**
+	 * Adds sender entries from {@code start} onwards. Entries already received from there on are replaced, as the sender may resend its palette from scratch.
+	 *
+	 * @return false if the entries start past those received so far, so can't be placed.
+	 */
+	public synchronized boolean append(int start, List<Integer> rawIds) {
+		if (start > size) return false;
+		for (int i = start; i < size; i++) {
+			remap.remove(i);
+		}
+		for (int i = 0; i < rawIds.size(); i++) {
+			int index = palette.findOrAdd(rawIds.get(i).intValue());
+			if (index != start + i) remap.put(start + i, index);
+		}
+		size = start + rawIds.size();
+		return true;
+	}
+
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * @return a lookup from sender indices to local palette indices, or null if they're all the same.
+	 */
+	public synchronized @Nullable IntUnaryOperator lookup() {
+		return remap.isEmpty() ? null : UInts.lookup(remap);
+	}
+}
@@ -1,32 +1,47 @@
 package folk.sisby.surveyor.util.uints;
 
-import folk.sisby.surveyor.util.ArrayUtil;
-
 import java.util.BitSet;
-import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
 
 public interface ArrayUInts extends UInts {
 	@Override
 	default int[] getUnmasked(BitSet mask) {
 		int[] unmasked = new int[mask.size()];
+		scatterInto(mask, unmasked);
+		return unmasked;
+	}
+
+	@Override
+	default void decodeInto(int[] dst, int offset, int cardinality) {
+		for (int i = 0; i < cardinality; i++) {
+			dst[offset + i] = get(i);
+		}
+	}
+
+	@Override
+	default void scatterInto(BitSet mask, int[] dst) {
 		int maskedIndex = 0;
-		for (int i = 0; i < unmasked.length; i++) {
-			if (mask.get(i)) {
-				unmasked[i] = get(maskedIndex);
-				maskedIndex++;
-			}
+		for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+			dst[i] = get(maskedIndex++);
 		}
-		return unmasked;
 	}
 
 	@Override
-	default UInts remap(Function<Integer, Integer> remapping, int defaultValue, int cardinality) {
-		int[] newArray = ArrayUtil.ofSingle(defaultValue, cardinality);
+	default UInts remap(IntUnaryOperator remapping, int defaultValue, int cardinality) {
+		int[] newArray = new int[cardinality];
 		for (int i = 0; i < newArray.length; i++) {
-			int val = get(i);
-			Integer mapped = remapping.apply(val);
-			newArray[i] = mapped == null ? val : mapped;
+			newArray[i] = remapping.applyAsInt(get(i));
 		}
 		return UInts.fromUInts(newArray, defaultValue);
 	}
+
+	/**
+	 * @return whether every value still fits under the given maximum once remapped, so the array can be rewritten in place.
+	 */
+	default boolean remapsWithin(IntUnaryOperator remapping, long max, int cardinality) {
+		for (int i = 0; i < cardinality; i++) {
+			if ((remapping.applyAsInt(get(i)) & 0xFFFFFFFFL) > max) return false;
+		}
+		return true;
+	}
 }
@@ -0,0 +1,138 @@
+package folk.sisby.surveyor.util.uints;
+
+import java.nio.LongBuffer;
+
+/**
+ * A fixed-size array of unsigned ints bit-packed into longs, using only as many bits per value as its largest value needs.
+ * Values may span two longs, so no bits are wasted on padding.
+ * The longs may live on or off the heap - see {@link #packInto}.
+ */
+public final class PackedIntArray {
+	private final LongBuffer data;
+	private final int bits;
+	private final long mask;
+	private final int size;
+
+	private PackedIntArray(LongBuffer data, int bits, int size) {
+		this.data = data;
+		this.bits = bits;
+		this.mask = (1L << bits) - 1;
+		this.size = size;
+	}
+
+	public static PackedIntArray of(int[] values, int size) {
+		int or = 0;
+		for (int i = 0; i < size; i++) {
+			or |= values[i];
+		}
+		return of(values, size, bitsFor(or));
+	}
+
+	/**
+	 * @param bits the bits per value, from 1 to 32 - values wider than this are truncated.
+	 */
+	public static PackedIntArray of(int[] values, int size, int bits) {
+		return packInto(LongBuffer.wrap(new long[dataLength(size, bits)]), values, size, bits);
+	}
+
+	/**
+	 * Packs values into the given longs, which must be zeroed and at least {@link #dataLength} long.
+	 * Values wider than {@code bits} are truncated, so they can't spill into their neighbours.
+	 */
+	public static PackedIntArray packInto(LongBuffer data, int[] values, int size, int bits) {
+		long mask = (1L << bits) - 1;
+		for (int i = 0; i < size; i++) {
+			long bitIndex = (long) i * bits;
+			int word = (int) (bitIndex >>> 6);
+			int offset = (int) (bitIndex & 63);
+			long value = values[i] & mask;
+			data.put(word, data.get(word) | value << offset);
+			if (offset + bits > Long.SIZE) data.put(word + 1, data.get(word + 1) | value >>> (Long.SIZE - offset));
+		}
+		return new PackedIntArray(data, bits, size);
+	}
+
+	/**
+	 * Wraps already packed data, e.g. from {@link #data} of an array read back from NBT.
+	 */
+	public static PackedIntArray wrap(long[] data, int bits, int size) {
+		if (bits < 1 || bits > Integer.SIZE) throw new IllegalStateException("PackedIntArray encountered unexpected bit width: " + bits);
+		if (data.length < dataLength(size, bits)) throw new IllegalStateException("PackedIntArray encountered %s longs for %s values of %s bits".formatted(data.length, size, bits));
+		return new PackedIntArray(LongBuffer.wrap(data), bits, size);
+	}
+
+	/**
+	 * @return the bits needed to hold the given unsigned value, at least 1.
+	 */
+	public static int bitsFor(int value) {
+		return Math.max(1, Integer.SIZE - Integer.numberOfLeadingZeros(value));
+	}
+
+	public static int dataLength(int size, int bits) {
+		return (int) (((long) size * bits + Long.SIZE - 1) / Long.SIZE);
+	}
+
+	public int get(int i) {
+		long bitIndex = (long) i * bits;
+		int word = (int) (bitIndex >>> 6);
+		int offset = (int) (bitIndex & 63);
+		long value = data.get(word) >>> offset;
+		if (offset + bits > Long.SIZE) value |= data.get(word + 1) << (Long.SIZE - offset);
+		return (int) (value & mask);
+	}
+
+	/**
+	 * Overwrites a value, truncated to the bit width.
+	 */
+	public void set(int i, int value) {
+		long bitIndex = (long) i * bits;
+		int word = (int) (bitIndex >>> 6);
+		int offset = (int) (bitIndex & 63);
+		long bitsValue = value & mask;
+		data.put(word, data.get(word) & ~(mask << offset) | bitsValue << offset);
+		if (offset + bits > Long.SIZE) {
+			int spilled = Long.SIZE - offset;
+			data.put(word + 1, data.get(word + 1) & ~(mask >>> spilled) | bitsValue >>> spilled);
+		}
+	}
+
+	/**
+	 * Unpacks a run of values in one pass, without recomputing word positions for each value.
+	 */
+	public void decode(int start, int[] into, int intoOffset, int length) {
+		long bitIndex = (long) start * bits;
+		int word = (int) (bitIndex >>> 6);
+		int offset = (int) (bitIndex & 63);
+		int limit = data.limit();
+		long current = length > 0 ? data.get(word) : 0;
+		for (int i = 0; i < length; i++) {
+			long value = current >>> offset;
+			offset += bits;
+			if (offset >= Long.SIZE) {
+				offset -= Long.SIZE;
+				word++;
+				current = word < limit ? data.get(word) : 0;
+				if (offset > 0) value |= current << (bits - offset);
+			}
+			into[intoOffset + i] = (int) (value & mask);
+		}
+	}
+
+	/**
+	 * @return the packed longs - the backing array itself when held on the heap, otherwise a copy.
+	 */
+	public long[] data() {
+		if (data.hasArray() && data.arrayOffset() == 0 && data.array().length == data.limit()) return data.array();
+		long[] longs = new long[data.limit()];
+		data.get(0, longs);
+		return longs;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int bits() {
+		return bits;
+	}
+}
@@ -0,0 +1,67 @@
+package folk.sisby.surveyor.util.uints;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.network.PacketByteBuf;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A read-only view of a run of values within a shared packed array.
+ * Converted to a standalone UInts when written, so views never change the NBT or packet formats.
+ * A view of only default values is written as absent, the same as the null UInts it was packed from.
+ */
+public final class PackedUInts implements ArrayUInts {
+	private final PackedIntArray array;
+	private final int offset;
+	private final int cardinality;
+	private final int defaultValue;
+	private @Nullable UInts standalone = null;
+	private boolean converted = false;
+
+	public PackedUInts(PackedIntArray array, int offset, int cardinality, int defaultValue) {
+		this.array = array;
+		this.offset = offset;
+		this.cardinality = cardinality;
+		this.defaultValue = defaultValue;
+	}
+
+	/**
+	 * @return the values as encoded outside a packed region, or null if they're all the default.
+	 */
+	private @Nullable UInts standalone() {
+		if (!converted) {
+			int[] values = new int[cardinality];
+			decodeInto(values, 0, cardinality);
+			standalone = UInts.fromUInts(values, defaultValue);
+			converted = true;
+		}
+		return standalone;
+	}
+
+	@Override
+	public void decodeInto(int[] dst, int offset, int cardinality) {
+		array.decode(this.offset, dst, offset, cardinality);
+	}
+
+	@Override
+	public int get(int i) {
+		return array.get(offset + i);
+	}
+
+	@Override
+	public int getType() {
+		UInts standalone = standalone();
+		return standalone == null ? UInts.NULL_TYPE : standalone.getType();
+	}
+
+	@Override
+	public void writeNbt(NbtCompound nbt, String key) {
+		UInts standalone = standalone();
+		if (standalone != null) standalone.writeNbt(nbt, key);
+	}
+
+	@Override
+	public void writeBuf(PacketByteBuf buf) {
+		UInts standalone = standalone();
+		if (standalone != null) standalone.writeBuf(buf);
+	}
+}
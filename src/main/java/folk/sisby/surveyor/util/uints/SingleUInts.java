@@ -2,8 +2,9 @@ package folk.sisby.surveyor.util.uints;
 
 import folk.sisby.surveyor.util.ArrayUtil;
 
+import java.util.Arrays;
 import java.util.BitSet;
-import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
 
 public interface SingleUInts extends UInts {
 	int get();
@@ -19,9 +20,20 @@ public interface SingleUInts extends UInts {
 	}
 
 	@Override
-	default UInts remap(Function<Integer, Integer> remapping, int defaultValue, int cardinality) {
-		int val = get();
-		Integer mapped = remapping.apply(val);
-		return UInts.ofSingle(mapped == null ? val : mapped, defaultValue);
+	default void decodeInto(int[] dst, int offset, int cardinality) {
+		Arrays.fill(dst, offset, offset + cardinality, get());
+	}
+
+	@Override
+	default void scatterInto(BitSet mask, int[] dst) {
+		int value = get();
+		for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+			dst[i] = value;
+		}
+	}
+
+	@Override
+	default UInts remap(IntUnaryOperator remapping, int defaultValue, int cardinality) {
+		return UInts.ofSingle(remapping.applyAsInt(get()), defaultValue);
 	}
 }
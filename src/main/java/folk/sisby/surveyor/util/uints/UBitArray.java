@@ -0,0 +1,84 @@
+package folk.sisby.surveyor.util.uints;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtLongArray;
+import net.minecraft.network.PacketByteBuf;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Unsigned ints packed at any width from 1 to 32 bits, for values that don't fit the nibble, byte, short and int arrays snugly.
+ * Written as a long array, headed by the bit width in NBT.
+ */
+public record UBitArray(PackedIntArray value) implements ArrayUInts {
+	public static final byte TYPE = NbtElement.LONG_ARRAY_TYPE;
+
+	public static UInts ofInts(int[] ints, int bits) {
+		return new UBitArray(PackedIntArray.of(ints, ints.length, bits));
+	}
+
+	public static UInts fromNbt(NbtElement nbt, int cardinality) {
+		long[] longs = ((NbtLongArray) nbt).getLongArray();
+		if (longs.length == 0) throw new IllegalStateException("UBitArray encountered NBT without a bit width");
+		return new UBitArray(PackedIntArray.wrap(Arrays.copyOfRange(longs, 1, longs.length), (int) longs[0], cardinality));
+	}
+
+	public static UInts fromBuf(PacketByteBuf buf, int cardinality) {
+		int bits = buf.readUnsignedByte();
+		return new UBitArray(PackedIntArray.wrap(buf.readLongArray(), bits, cardinality));
+	}
+
+	/**
+	 * Unpacks every value at once - faster than calling {@link #get} for each.
+	 */
+	public int[] decode() {
+		int[] ints = new int[value.size()];
+		value.decode(0, ints, 0, ints.length);
+		return ints;
+	}
+
+	@Override
+	public UInts remap(IntUnaryOperator remapping, int defaultValue, int cardinality) {
+		if (!remapsWithin(remapping, (1L << value.bits()) - 1, cardinality)) return ArrayUInts.super.remap(remapping, defaultValue, cardinality);
+		for (int i = 0; i < cardinality; i++) {
+			value.set(i, remapping.applyAsInt(value.get(i)));
+		}
+		return this;
+	}
+
+	@Override
+	public void decodeInto(int[] dst, int offset, int cardinality) {
+		value.decode(0, dst, offset, cardinality);
+	}
+
+	@Override
+	public int get(int i) {
+		return value.get(i);
+	}
+
+	@Override
+	public void writeNbt(NbtCompound nbt, String key) {
+		nbt.put(key, toNbt());
+	}
+
+	NbtLongArray toNbt() {
+		long[] data = value.data();
+		long[] longs = new long[data.length + 1];
+		longs[0] = value.bits();
+		System.arraycopy(data, 0, longs, 1, data.length);
+		return new NbtLongArray(longs);
+	}
+
+	@Override
+	public void writeBuf(PacketByteBuf buf) {
+		buf.writeByte(value.bits());
+		buf.writeLongArray(value.data());
+	}
+
+	@Override
+	public int getType() {
+		return TYPE;
+	}
+}
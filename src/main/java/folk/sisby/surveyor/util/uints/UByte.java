@@ -7,17 +7,24 @@ import net.minecraft.network.PacketByteBuf;
 
 public record UByte(byte value) implements SingleUInts {
 	public static final byte TYPE = NbtElement.BYTE_TYPE;
+	private static final UByte[] CACHE = new UByte[MAX_BYTE + 1];
+
+	static {
+		for (int i = 0; i < CACHE.length; i++) {
+			CACHE[i] = new UByte((byte) i);
+		}
+	}
 
 	public static UInts ofInt(int value) {
-		return new UByte((byte) value);
+		return CACHE[value & BYTE_MASK];
 	}
 
 	public static UInts fromNbt(NbtElement nbt) {
-		return new UByte(((NbtByte) nbt).byteValue());
+		return ofInt(((NbtByte) nbt).byteValue());
 	}
 
 	public static UInts fromBuf(PacketByteBuf buf) {
-		return new UByte(buf.readByte());
+		return ofInt(buf.readByte());
 	}
 
 	@Override
@@ -5,6 +5,9 @@ import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtElement;
 import net.minecraft.network.PacketByteBuf;
 
+import java.util.BitSet;
+import java.util.function.IntUnaryOperator;
+
 public record UByteArray(byte[] value) implements ArrayUInts {
 	public static final byte TYPE = NbtElement.BYTE_ARRAY_TYPE;
 
@@ -25,6 +28,30 @@ public record UByteArray(byte[] value) implements ArrayUInts {
 		return new UByteArray(buf.readByteArray());
 	}
 
+	@Override
+	public UInts remap(IntUnaryOperator remapping, int defaultValue, int cardinality) {
+		if (!remapsWithin(remapping, MAX_BYTE, cardinality)) return ArrayUInts.super.remap(remapping, defaultValue, cardinality);
+		for (int i = 0; i < value.length; i++) {
+			value[i] = (byte) remapping.applyAsInt(value[i] & BYTE_MASK);
+		}
+		return this;
+	}
+
+	@Override
+	public void decodeInto(int[] dst, int offset, int cardinality) {
+		for (int i = 0; i < cardinality; i++) {
+			dst[offset + i] = value[i] & BYTE_MASK;
+		}
+	}
+
+	@Override
+	public void scatterInto(BitSet mask, int[] dst) {
+		int maskedIndex = 0;
+		for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+			dst[i] = value[maskedIndex++] & BYTE_MASK;
+		}
+	}
+
 	@Override
 	public int get(int i) {
 		return value[i] & BYTE_MASK;
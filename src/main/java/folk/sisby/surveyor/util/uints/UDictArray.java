@@ -0,0 +1,98 @@
+package folk.sisby.surveyor.util.uints;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtLongArray;
+import net.minecraft.network.PacketByteBuf;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Unsigned ints stored as narrow indices into a small dictionary, for arrays of a few widely spaced values - e.g. a handful of palette indices.
+ * Written as a list of two long arrays - the dictionary, then the indices packed as a {@link UBitArray}.
+ *
+ * @param dictionary every distinct value.
+ * @param indices    the dictionary index of each value, packed at the width of the largest index.
+ */
+public record UDictArray(int[] dictionary, UBitArray indices) implements ArrayUInts {
+	public static final byte TYPE = NbtElement.LIST_TYPE;
+
+	/**
+	 * @param dictionary every distinct value in the ints.
+	 */
+	public static UInts ofInts(int[] ints, int[] dictionary) {
+		int[] indices = new int[ints.length];
+		for (int i = 0; i < ints.length; i++) {
+			for (int d = 0; d < dictionary.length; d++) {
+				if (dictionary[d] == ints[i]) {
+					indices[i] = d;
+					break;
+				}
+			}
+		}
+		return new UDictArray(dictionary, new UBitArray(PackedIntArray.of(indices, indices.length, PackedIntArray.bitsFor(dictionary.length - 1))));
+	}
+
+	public static UInts fromNbt(NbtElement nbt, int cardinality) {
+		NbtList list = (NbtList) nbt;
+		if (list.size() != 2 || list.getHeldType() != NbtElement.LONG_ARRAY_TYPE) throw new IllegalStateException("UDictArray encountered NBT without a dictionary and indices");
+		long[] longs = list.getLongArray(0);
+		int[] dictionary = new int[longs.length];
+		for (int d = 0; d < longs.length; d++) {
+			dictionary[d] = (int) longs[d];
+		}
+		return new UDictArray(dictionary, (UBitArray) UBitArray.fromNbt(list.get(1), cardinality));
+	}
+
+	public static UInts fromBuf(PacketByteBuf buf, int cardinality) {
+		return new UDictArray(buf.readIntArray(), (UBitArray) UBitArray.fromBuf(buf, cardinality));
+	}
+
+	/**
+	 * Remaps only the dictionary, leaving the indices untouched.
+	 */
+	@Override
+	public UInts remap(IntUnaryOperator remapping, int defaultValue, int cardinality) {
+		for (int d = 0; d < dictionary.length; d++) {
+			dictionary[d] = remapping.applyAsInt(dictionary[d]);
+		}
+		return this;
+	}
+
+	@Override
+	public void decodeInto(int[] dst, int offset, int cardinality) {
+		indices.decodeInto(dst, offset, cardinality);
+		for (int i = offset; i < offset + cardinality; i++) {
+			dst[i] = dictionary[dst[i]];
+		}
+	}
+
+	@Override
+	public int get(int i) {
+		return dictionary[indices.get(i)];
+	}
+
+	@Override
+	public void writeNbt(NbtCompound nbt, String key) {
+		long[] longs = new long[dictionary.length];
+		for (int d = 0; d < dictionary.length; d++) {
+			longs[d] = dictionary[d] & 0xFFFFFFFFL;
+		}
+		NbtList list = new NbtList();
+		list.add(new NbtLongArray(longs));
+		list.add(indices.toNbt());
+		nbt.put(key, list);
+	}
+
+	@Override
+	public void writeBuf(PacketByteBuf buf) {
+		buf.writeIntArray(dictionary);
+		indices.writeBuf(buf);
+	}
+
+	@Override
+	public int getType() {
+		return TYPE;
+	}
+}
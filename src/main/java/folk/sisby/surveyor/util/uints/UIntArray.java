@@ -5,6 +5,9 @@ import net.minecraft.nbt.NbtElement;
 import net.minecraft.nbt.NbtIntArray;
 import net.minecraft.network.PacketByteBuf;
 
+import java.util.BitSet;
+import java.util.function.IntUnaryOperator;
+
 public record UIntArray(int[] value) implements ArrayUInts {
 	public static final byte TYPE = NbtElement.INT_ARRAY_TYPE;
 
@@ -21,6 +24,27 @@ public record UIntArray(int[] value) implements ArrayUInts {
 		return new UIntArray(buf.readIntArray());
 	}
 
+	@Override
+	public UInts remap(IntUnaryOperator remapping, int defaultValue, int cardinality) {
+		for (int i = 0; i < value.length; i++) {
+			value[i] = remapping.applyAsInt(value[i]);
+		}
+		return this;
+	}
+
+	@Override
+	public void decodeInto(int[] dst, int offset, int cardinality) {
+		System.arraycopy(value, 0, dst, offset, cardinality);
+	}
+
+	@Override
+	public void scatterInto(BitSet mask, int[] dst) {
+		int maskedIndex = 0;
+		for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+			dst[i] = value[maskedIndex++];
+		}
+	}
+
 	@Override
 	public int get(int i) {
 		return value[i];
@@ -1,13 +1,14 @@
 package folk.sisby.surveyor.util.uints;
 
 import folk.sisby.surveyor.util.ArrayUtil;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtElement;
 import net.minecraft.network.PacketByteBuf;
 
 import java.util.Arrays;
 import java.util.BitSet;
-import java.util.function.Function;
+import java.util.function.IntUnaryOperator;
 
 /**
  * A compressed representation of an int array for holding unsigned ints.
@@ -27,11 +28,39 @@ public interface UInts {
 	int SHORT_MASK = 0xFFFF;
 	int BYTE_MASK = 0xFF;
 	int NIBBLE_MASK = 0xF;
+	int MAX_DICTIONARY = 16;
+	int ENCODING_OVERHEAD_BITS = 256;
 
-	static UInts remap(UInts input, Function<Integer, Integer> remapping, int defaultValue, int cardinality) {
+	static UInts remap(UInts input, IntUnaryOperator remapping, int defaultValue, int cardinality) {
 		return (input == null ? new UInt(defaultValue) : input).remap(remapping, defaultValue, cardinality);
 	}
 
+	/**
+	 * Decodes the first {@code cardinality} values into the start of the destination, filling in the default value for null uints.
+	 */
+	static void decodeInto(UInts input, int defaultValue, int[] dst, int cardinality) {
+		if (input == null) {
+			Arrays.fill(dst, 0, cardinality, defaultValue);
+		} else {
+			input.decodeInto(dst, 0, cardinality);
+		}
+	}
+
+	/**
+	 * Flattens a sparse remapping into a lookup table. Values it doesn't hold map to themselves.
+	 */
+	static IntUnaryOperator lookup(Int2IntMap remap) {
+		int size = 0;
+		for (int key : remap.keySet()) {
+			size = Math.max(size, key + 1);
+		}
+		int[] table = new int[size];
+		for (int i = 0; i < size; i++) {
+			table[i] = remap.getOrDefault(i, i);
+		}
+		return i -> i < table.length ? table[i] : i;
+	}
+
 	static void writeBuf(UInts array, PacketByteBuf buf) {
 		if (array == null) {
 			buf.writeVarInt(NULL_TYPE);
@@ -49,6 +78,9 @@ public interface UInts {
 			case UInt.TYPE -> UInt.fromNbt(nbt);
 			case UByteArray.TYPE -> UByteArray.fromNbt(nbt, cardinality);
 			case UIntArray.TYPE -> UIntArray.fromNbt(nbt, cardinality);
+			case UBitArray.TYPE -> UBitArray.fromNbt(nbt, cardinality);
+			case URunArray.TYPE -> URunArray.fromNbt(nbt);
+			case UDictArray.TYPE -> UDictArray.fromNbt(nbt, cardinality);
 			default -> throw new IllegalStateException("UIntArray encountered unexpected NBT type: " + nbt.getType());
 		};
 	}
@@ -64,6 +96,9 @@ public interface UInts {
 			case UByteArray.TYPE -> UByteArray.fromBuf(buf);
 			case UShortArray.TYPE -> UShortArray.fromBuf(buf, cardinality);
 			case UIntArray.TYPE -> UIntArray.fromBuf(buf);
+			case UBitArray.TYPE -> UBitArray.fromBuf(buf, cardinality);
+			case URunArray.TYPE -> URunArray.fromBuf(buf);
+			case UDictArray.TYPE -> UDictArray.fromBuf(buf, cardinality);
 			default -> throw new IllegalStateException("UIntArray encountered unexpected buf type: " + type);
 		};
 	}
@@ -72,12 +107,69 @@ public interface UInts {
 		return ArrayUtil.isSingle(uints) ? ofSingle(uints[0], defaultValue) : ofMany(uints);
 	}
 
+	/**
+	 * Picks whichever of the plain, run-length and dictionary encodings is estimated to be smallest.
+	 * Ties go to the plain encoding, as it has the fastest {@link #get}.
+	 */
 	static UInts ofMany(int[] uints) {
-		int max = Arrays.stream(uints).max().orElseThrow();
-		if (max <= MAX_NIBBLE) return UNibbleArray.ofInts(uints);
-		if (max <= MAX_BYTE) return UByteArray.ofInts(uints);
-		if (max <= MAX_SHORT) return UShortArray.ofInts(uints);
-		return UIntArray.ofInts(uints);
+		int or = 0;
+		for (int uint : uints) {
+			or |= uint;
+		}
+		long plainBits = (long) uints.length * PackedIntArray.bitsFor(or);
+		int runs = URunArray.countRuns(uints);
+		long runBits = Long.MAX_VALUE;
+		if ((long) runs * 2 < uints.length) {
+			int runOr = 0;
+			int runLengthOr = 0;
+			int runStart = 0;
+			for (int i = 1; i <= uints.length; i++) {
+				if (i == uints.length || uints[i] != uints[i - 1]) {
+					runOr |= uints[i - 1];
+					runLengthOr |= i - runStart;
+					runStart = i;
+				}
+			}
+			runBits = ENCODING_OVERHEAD_BITS + (long) runs * (PackedIntArray.bitsFor(runOr) + PackedIntArray.bitsFor(runLengthOr));
+		}
+		int[] dictionary = dictionaryOf(uints);
+		long dictionaryBits = dictionary == null ? Long.MAX_VALUE : ENCODING_OVERHEAD_BITS + (long) dictionary.length * Integer.SIZE + (long) uints.length * PackedIntArray.bitsFor(dictionary.length - 1);
+		if (runBits < plainBits && runBits <= dictionaryBits) return URunArray.ofInts(uints);
+		if (dictionaryBits < plainBits) return UDictArray.ofInts(uints, dictionary);
+		return ofPlain(uints);
+	}
+
+	/**
+	 * @return every distinct value, or null if there are more than {@link #MAX_DICTIONARY}.
+	 */
+	private static int[] dictionaryOf(int[] uints) {
+		int[] dictionary = new int[MAX_DICTIONARY];
+		int size = 0;
+		outer:
+		for (int uint : uints) {
+			for (int d = 0; d < size; d++) {
+				if (dictionary[d] == uint) continue outer;
+			}
+			if (size == MAX_DICTIONARY) return null;
+			dictionary[size++] = uint;
+		}
+		return Arrays.copyOf(dictionary, size);
+	}
+
+	/**
+	 * Packs the values as an array at the narrowest width that holds them.
+	 */
+	static UInts ofPlain(int[] uints) {
+		int or = 0;
+		for (int uint : uints) {
+			or |= uint;
+		}
+		int bits = PackedIntArray.bitsFor(or);
+		if (bits == NIBBLE_SIZE) return UNibbleArray.ofInts(uints);
+		if (bits == Byte.SIZE) return UByteArray.ofInts(uints);
+		if (bits == Short.SIZE) return UShortArray.ofInts(uints);
+		if (bits == Integer.SIZE) return UIntArray.ofInts(uints);
+		return UBitArray.ofInts(uints, bits); // Any width in between packs tighter
 	}
 
 	static UInts ofSingle(int uint, int defaultValue) {
@@ -97,5 +189,20 @@ public interface UInts {
 
 	int get(int i);
 
-	UInts remap(Function<Integer, Integer> remapping, int defaultValue, int cardinality);
+	/**
+	 * Decodes the first {@code cardinality} values in one pass - faster than calling {@link #get} for each.
+	 */
+	void decodeInto(int[] dst, int offset, int cardinality);
+
+	/**
+	 * Writes each value to the index of its set bit in the mask, leaving every other index untouched.
+	 */
+	void scatterInto(BitSet mask, int[] dst);
+
+	/**
+	 * Array uints may be rewritten in place when the remapped values still fit, so only remap uints nothing else holds.
+	 *
+	 * @return the remapped uints - possibly this instance.
+	 */
+	UInts remap(IntUnaryOperator remapping, int defaultValue, int cardinality);
 }
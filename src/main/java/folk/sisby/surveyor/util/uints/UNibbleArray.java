@@ -4,6 +4,9 @@ import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtElement;
 import net.minecraft.network.PacketByteBuf;
 
+import java.util.BitSet;
+import java.util.function.IntUnaryOperator;
+
 public record UNibbleArray(byte[] value) implements ArrayUInts {
 	public static final byte TYPE = NbtElement.DOUBLE_TYPE;
 
@@ -22,6 +25,32 @@ public record UNibbleArray(byte[] value) implements ArrayUInts {
 		return new UNibbleArray(buf.readByteArray());
 	}
 
+	@Override
+	public UInts remap(IntUnaryOperator remapping, int defaultValue, int cardinality) {
+		if (!remapsWithin(remapping, MAX_NIBBLE, cardinality)) return ArrayUInts.super.remap(remapping, defaultValue, cardinality);
+		for (int i = 0; i < cardinality; i++) {
+			int mapped = remapping.applyAsInt(get(i));
+			value[i / 2] = (byte) ((i & 1) == 0 ? (value[i / 2] & NIBBLE_MASK) | mapped << NIBBLE_SIZE : (value[i / 2] & (NIBBLE_MASK << NIBBLE_SIZE)) | mapped);
+		}
+		return this;
+	}
+
+	@Override
+	public void decodeInto(int[] dst, int offset, int cardinality) {
+		for (int i = 0; i < cardinality; i++) {
+			dst[offset + i] = ((i & 1) == 0 ? value[i / 2] >>> NIBBLE_SIZE : value[i / 2]) & NIBBLE_MASK;
+		}
+	}
+
+	@Override
+	public void scatterInto(BitSet mask, int[] dst) {
+		int maskedIndex = 0;
+		for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+			dst[i] = ((maskedIndex & 1) == 0 ? value[maskedIndex / 2] >>> NIBBLE_SIZE : value[maskedIndex / 2]) & NIBBLE_MASK;
+			maskedIndex++;
+		}
+	}
+
 	@Override
 	public int get(int i) {
 		return ((i & 1) == 0 ? value[i / 2] >>> NIBBLE_SIZE : value[i / 2]) & NIBBLE_MASK;
@@ -0,0 +1,123 @@
+package folk.sisby.surveyor.util.uints;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.network.PacketByteBuf;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Unsigned ints stored as runs of repeated values, for arrays dominated by long stretches of the same value - e.g. ocean floors.
+ * Written as a compound of the run values and run lengths, each as plain uints.
+ *
+ * @param ends   the exclusive end index of each run, ascending.
+ * @param values the value of each run.
+ */
+public record URunArray(int[] ends, UInts values) implements ArrayUInts {
+	public static final byte TYPE = NbtElement.COMPOUND_TYPE;
+	public static final String KEY_RUNS = "runs";
+	public static final String KEY_VALUES = "values";
+	public static final String KEY_LENGTHS = "lengths";
+
+	public static UInts ofInts(int[] ints) {
+		int runs = countRuns(ints);
+		int[] ends = new int[runs];
+		int[] runValues = new int[runs];
+		int run = 0;
+		for (int i = 1; i <= ints.length; i++) {
+			if (i == ints.length || ints[i] != ints[i - 1]) {
+				ends[run] = i;
+				runValues[run] = ints[i - 1];
+				run++;
+			}
+		}
+		return new URunArray(ends, UInts.ofPlain(runValues));
+	}
+
+	public static int countRuns(int[] ints) {
+		int runs = ints.length == 0 ? 0 : 1;
+		for (int i = 1; i < ints.length; i++) {
+			if (ints[i] != ints[i - 1]) runs++;
+		}
+		return runs;
+	}
+
+	private static int[] endsOf(UInts lengths, int runs) {
+		int[] ends = new int[runs];
+		int end = 0;
+		for (int i = 0; i < runs; i++) {
+			end += lengths.get(i);
+			ends[i] = end;
+		}
+		return ends;
+	}
+
+	public static UInts fromNbt(NbtElement nbt) {
+		NbtCompound compound = (NbtCompound) nbt;
+		int runs = compound.getInt(KEY_RUNS);
+		return new URunArray(endsOf(UInts.readNbt(compound.get(KEY_LENGTHS), runs), runs), UInts.readNbt(compound.get(KEY_VALUES), runs));
+	}
+
+	public static UInts fromBuf(PacketByteBuf buf) {
+		int runs = buf.readVarInt();
+		UInts values = UInts.readBuf(buf, runs);
+		return new URunArray(endsOf(UInts.readBuf(buf, runs), runs), values);
+	}
+
+	private UInts lengths() {
+		int[] lengths = new int[ends.length];
+		for (int i = 0; i < ends.length; i++) {
+			lengths[i] = ends[i] - (i == 0 ? 0 : ends[i - 1]);
+		}
+		return UInts.ofPlain(lengths);
+	}
+
+	/**
+	 * Remaps only the run values, leaving the run ends untouched.
+	 */
+	@Override
+	public UInts remap(IntUnaryOperator remapping, int defaultValue, int cardinality) {
+		UInts remapped = values.remap(remapping, defaultValue, ends.length);
+		if (remapped == values) return this;
+		if (!(remapped instanceof ArrayUInts)) return remapped; // Every run now has the same value
+		return new URunArray(ends, remapped);
+	}
+
+	@Override
+	public void decodeInto(int[] dst, int offset, int cardinality) {
+		int start = 0;
+		for (int run = 0; run < ends.length && start < cardinality; run++) {
+			int end = Math.min(ends[run], cardinality);
+			Arrays.fill(dst, offset + start, offset + end, values.get(run));
+			start = end;
+		}
+	}
+
+	@Override
+	public int get(int i) {
+		int run = Arrays.binarySearch(ends, i);
+		return values.get(run < 0 ? -run - 1 : run + 1);
+	}
+
+	@Override
+	public void writeNbt(NbtCompound nbt, String key) {
+		NbtCompound compound = new NbtCompound();
+		compound.putInt(KEY_RUNS, ends.length);
+		values.writeNbt(compound, KEY_VALUES);
+		lengths().writeNbt(compound, KEY_LENGTHS);
+		nbt.put(key, compound);
+	}
+
+	@Override
+	public void writeBuf(PacketByteBuf buf) {
+		buf.writeVarInt(ends.length);
+		UInts.writeBuf(values, buf);
+		UInts.writeBuf(lengths(), buf);
+	}
+
+	@Override
+	public int getType() {
+		return TYPE;
+	}
+}
@@ -4,6 +4,9 @@ import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtElement;
 import net.minecraft.network.PacketByteBuf;
 
+import java.util.BitSet;
+import java.util.function.IntUnaryOperator;
+
 public record UShortArray(short[] value) implements ArrayUInts {
 	public static final int TYPE = NbtElement.STRING_TYPE;
 
@@ -41,6 +44,30 @@ public record UShortArray(short[] value) implements ArrayUInts {
 		return packed;
 	}
 
+	@Override
+	public UInts remap(IntUnaryOperator remapping, int defaultValue, int cardinality) {
+		if (!remapsWithin(remapping, MAX_SHORT, cardinality)) return ArrayUInts.super.remap(remapping, defaultValue, cardinality);
+		for (int i = 0; i < value.length; i++) {
+			value[i] = (short) remapping.applyAsInt(value[i] & SHORT_MASK);
+		}
+		return this;
+	}
+
+	@Override
+	public void decodeInto(int[] dst, int offset, int cardinality) {
+		for (int i = 0; i < cardinality; i++) {
+			dst[offset + i] = value[i] & SHORT_MASK;
+		}
+	}
+
+	@Override
+	public void scatterInto(BitSet mask, int[] dst) {
+		int maskedIndex = 0;
+		for (int i = mask.nextSetBit(0); i >= 0; i = mask.nextSetBit(i + 1)) {
+			dst[i] = value[maskedIndex++] & SHORT_MASK;
+		}
+	}
+
 	@Override
 	public int get(int i) {
 		return value[i] & SHORT_MASK;
@@ -0,0 +1,41 @@
+package folk.sisby.surveyor.terrain;
+
+import folk.sisby.surveyor.util.MicroBenchmark;
+import net.minecraft.registry.Registries;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures the column scanner on a full overworld chunk. Run with {@code gradlew benchmark}.
+ */
+@Tag("benchmark")
+class ChunkSummaryBenchmark {
+	private static final int WARMUP = 500;
+	private static final int ITERATIONS = 2000;
+	/**
+	 * Far below a per-block allocation - one BlockPos per scanned block would be over 2MB per chunk.
+	 */
+	private static final int MAX_BYTES_PER_CHUNK = 256 * 1024;
+
+	@BeforeAll
+	static void bootstrap() {
+		TerrainFixtures.bootstrap();
+	}
+
+	@Test
+	void scanChunk() {
+		ChunkSnapshot snapshot = TerrainFixtures.snapshot(TerrainFixtures.ALL_FIELDS);
+		MicroBenchmark.Result result = MicroBenchmark.run("Column scan (all fields)", WARMUP, ITERATIONS, () -> new ChunkSummary(snapshot, null, TerrainFixtures.LAYERS, biome -> 0, Registries.BLOCK::getRawId));
+		assertTrue(result.bytesPerOp() < MAX_BYTES_PER_CHUNK, "Scanning allocated " + result.bytesPerOp() + " bytes per chunk");
+	}
+
+	@Test
+	void scanChunkDepthOnly() {
+		ChunkSnapshot snapshot = TerrainFixtures.snapshot(new CaptureProfile(false, false, false, false, false));
+		MicroBenchmark.Result result = MicroBenchmark.run("Column scan (depth only)", WARMUP, ITERATIONS, () -> new ChunkSummary(snapshot, null, TerrainFixtures.LAYERS, biome -> 0, Registries.BLOCK::getRawId));
+		assertTrue(result.bytesPerOp() < MAX_BYTES_PER_CHUNK, "Scanning allocated " + result.bytesPerOp() + " bytes per chunk");
+	}
+}
@@ -0,0 +1,127 @@
+package folk.sisby.surveyor.terrain;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.PalettedContainer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ChunkSummaryTest {
+	private static final int PILLAR = 5 * 16 + 5;
+	private static final int PIT = 10 * 16 + 2;
+
+	@BeforeAll
+	static void bootstrap() {
+		TerrainFixtures.bootstrap();
+	}
+
+	/**
+	 * The fixture with a tall pillar, and a pit dug down into the cave.
+	 */
+	private static BlockState changedBlockAt(int x, int y, int z) {
+		int column = x * 16 + z;
+		int height = TerrainFixtures.height(x, z);
+		if (column == PILLAR && y > height && y <= height + 12) return Blocks.OAK_PLANKS.getDefaultState();
+		if (column == PIT && y > 24 && y <= height) return Blocks.AIR.getDefaultState();
+		return TerrainFixtures.blockAt(x, y, z);
+	}
+
+	private static ChunkSummary summarise(TerrainFixtures.BlockSource source, BitSet columns) {
+		return new ChunkSummary(TerrainFixtures.snapshot(source, TerrainFixtures.ALL_FIELDS), columns, TerrainFixtures.LAYERS, biome -> 0, Registries.BLOCK::getRawId);
+	}
+
+	/**
+	 * The fixture as the scanner can't skip any of it - without surface heights, and with every section's palette
+	 * padded by states it doesn't hold, so none classify as clear or solid.
+	 */
+	private static ChunkSnapshot unskippableSnapshot(TerrainFixtures.BlockSource source) {
+		ChunkSnapshot snapshot = TerrainFixtures.snapshot(source, TerrainFixtures.ALL_FIELDS);
+		PalettedContainer<BlockState>[] blocks = TerrainFixtures.blockContainers(source);
+		PalettedContainer<RegistryEntry<Biome>> biomes = TerrainFixtures.biomeContainer(TerrainFixtures.plains());
+		SectionSummary[] sections = new SectionSummary[blocks.length];
+		for (int i = 0; i < blocks.length; i++) {
+			BlockState original = blocks[i].get(0, 0, 0);
+			blocks[i].set(0, 0, 0, Blocks.WATER.getDefaultState());
+			blocks[i].set(0, 0, 0, Blocks.STONE.getDefaultState());
+			blocks[i].set(0, 0, 0, original); // Palettes keep states that are no longer used
+			sections[i] = SectionSummary.of(blocks[i], biomes);
+			assertEquals(SectionSummary.MIXED, sections[i].classify());
+		}
+		return new ChunkSnapshot(snapshot.pos(), snapshot.bottomY(), snapshot.topY(), snapshot.bottomSectionCoord(), sections, snapshot.blockLight(), null, snapshot.profile(), snapshot.airCount());
+	}
+
+	@Test
+	void skippedSpansMatchFullScan() {
+		for (TerrainFixtures.BlockSource source : List.<TerrainFixtures.BlockSource>of(TerrainFixtures::blockAt, ChunkSummaryTest::changedBlockAt)) {
+			ChunkSummary skipped = summarise(source, null);
+			ChunkSummary full = new ChunkSummary(unskippableSnapshot(source), null, TerrainFixtures.LAYERS, biome -> 0, Registries.BLOCK::getRawId);
+			assertArrayEquals(full.layers, skipped.layers);
+		}
+	}
+
+	@Test
+	void withColumnsMatchesFullScan() {
+		BitSet columns = new BitSet(256);
+		columns.set(PILLAR);
+		columns.set(PIT);
+		ChunkSummary original = summarise(TerrainFixtures::blockAt, null);
+		ChunkSummary partial = summarise(ChunkSummaryTest::changedBlockAt, columns);
+		ChunkSummary expected = summarise(ChunkSummaryTest::changedBlockAt, null);
+		ChunkSummary merged = original.withColumns(partial, columns);
+		assertNotNull(merged);
+		assertArrayEquals(expected.layers, merged.layers);
+	}
+
+	@Test
+	void withColumnsKeepsUnchangedColumns() {
+		BitSet columns = new BitSet(256);
+		columns.set(PILLAR);
+		ChunkSummary original = summarise(TerrainFixtures::blockAt, null);
+		ChunkSummary partial = summarise(TerrainFixtures::blockAt, columns);
+		ChunkSummary merged = original.withColumns(partial, columns);
+		assertNotNull(merged);
+		assertArrayEquals(original.layers, merged.layers);
+	}
+
+	@Test
+	void withColumnsRejectsDifferentLayers() {
+		BitSet columns = new BitSet(256);
+		columns.set(PILLAR);
+		ChunkSummary original = summarise(TerrainFixtures::blockAt, null);
+		ChunkSummary partial = new ChunkSummary(TerrainFixtures.snapshot(TerrainFixtures.ALL_FIELDS), columns, new int[]{319, 61, -64}, biome -> 0, Registries.BLOCK::getRawId);
+		assertNull(original.withColumns(partial, columns));
+	}
+
+	@Test
+	void profileSurvivesNbtAndPacking() {
+		CaptureProfile profile = new CaptureProfile(false, true, false, true, false);
+		ChunkSummary summary = new ChunkSummary(TerrainFixtures.snapshot(profile), null, TerrainFixtures.LAYERS, biome -> 0, Registries.BLOCK::getRawId);
+		ChunkSummary read = new ChunkSummary(summary.writeNbt(new NbtCompound()));
+		assertEquals(profile, read.getProfile());
+		ChunkSummary[] summaries = new ChunkSummary[RegionSummary.BITSET_SIZE];
+		summaries[0] = read;
+		summaries[1] = summarise(TerrainFixtures::blockAt, null);
+		PackedRegion packed = PackedRegion.pack(summaries, read.layerHeights, false);
+		assertEquals(profile, packed.get(0).getProfile());
+		assertEquals(CaptureProfile.ALL, packed.get(1).getProfile());
+	}
+
+	@Test
+	void legacyNbtRecordsEveryField() {
+		NbtCompound nbt = summarise(TerrainFixtures::blockAt, null).writeNbt(new NbtCompound());
+		nbt.remove(ChunkSummary.KEY_FIELDS);
+		assertEquals(CaptureProfile.ALL, new ChunkSummary(nbt).getProfile());
+	}
+}
@@ -0,0 +1,109 @@
+package folk.sisby.surveyor.terrain;
+
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.Registries;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PackedRegionTest {
+	private static ChunkSummary hills;
+	private static ChunkSummary flooded;
+	private static ChunkSummary otherLayers;
+
+	@BeforeAll
+	static void summarise() {
+		TerrainFixtures.bootstrap();
+		hills = new ChunkSummary(TerrainFixtures.snapshot(TerrainFixtures.ALL_FIELDS), null, TerrainFixtures.LAYERS, biome -> 0, Registries.BLOCK::getRawId);
+		flooded = new ChunkSummary(TerrainFixtures.snapshot(PackedRegionTest::floodedBlockAt, TerrainFixtures.ALL_FIELDS), null, TerrainFixtures.LAYERS, biome -> 3, Registries.BLOCK::getRawId);
+		otherLayers = new ChunkSummary(TerrainFixtures.snapshot(TerrainFixtures.ALL_FIELDS), null, new int[]{319, 61, -64}, biome -> 0, Registries.BLOCK::getRawId);
+	}
+
+	private static BlockState floodedBlockAt(int x, int y, int z) {
+		if (y > 40 && y <= TerrainFixtures.SEA_LEVEL + 20) return Blocks.WATER.getDefaultState();
+		return y <= 40 ? Blocks.GRAVEL.getDefaultState() : Blocks.AIR.getDefaultState();
+	}
+
+	private static void assertSameSummary(ChunkSummary expected, ChunkSummary actual) {
+		assertEquals(expected.getAirCount(), actual.getAirCount());
+		assertArrayEquals(expected.fingerprints, actual.fingerprints);
+		assertEquals(expected.getProfile(), actual.getProfile());
+		assertArrayEquals(expected.layerHeights, actual.layerHeights);
+		for (int i = 0; i < expected.layers.length; i++) {
+			assertEquals(expected.layers[i] == null, actual.layers[i] == null);
+			if (expected.layers[i] != null) assertSameLayer(expected.layers[i], actual.layers[i]);
+		}
+	}
+
+	/**
+	 * Compares decoded values, as packing may hold a field that was all defaults where the original held none.
+	 */
+	private static void assertSameLayer(LayerSummary expected, LayerSummary actual) {
+		LayerSummary.Raw expectedRaw = emptyRaw();
+		LayerSummary.Raw actualRaw = emptyRaw();
+		expected.fillEmptyFloors(0, Integer.MIN_VALUE, Integer.MAX_VALUE, CaptureProfile.ALL, expectedRaw);
+		actual.fillEmptyFloors(0, Integer.MIN_VALUE, Integer.MAX_VALUE, CaptureProfile.ALL, actualRaw);
+		assertEquals(expectedRaw.exists(), actualRaw.exists());
+		assertArrayEquals(expectedRaw.depths(), actualRaw.depths());
+		assertArrayEquals(expectedRaw.biomes(), actualRaw.biomes());
+		assertArrayEquals(expectedRaw.blocks(), actualRaw.blocks());
+		assertArrayEquals(expectedRaw.lightLevels(), actualRaw.lightLevels());
+		assertArrayEquals(expectedRaw.waterDepths(), actualRaw.waterDepths());
+		assertArrayEquals(expectedRaw.waterLights(), actualRaw.waterLights());
+	}
+
+	private static LayerSummary.Raw emptyRaw() {
+		return new LayerSummary.Raw(new BitSet(256), new int[256], new int[256], new int[256], new int[256], new int[256], new int[256]);
+	}
+
+	private static void assertRoundTrip(boolean direct) {
+		ChunkSummary[] summaries = new ChunkSummary[RegionSummary.BITSET_SIZE];
+		summaries[0] = hills;
+		summaries[7] = flooded;
+		summaries[500] = otherLayers;
+		summaries[RegionSummary.BITSET_SIZE - 1] = hills;
+		PackedRegion packed = PackedRegion.pack(summaries, hills.layerHeights, direct);
+		assertSameSummary(hills, packed.get(0));
+		assertSameSummary(flooded, packed.get(7));
+		assertSameSummary(hills, packed.get(RegionSummary.BITSET_SIZE - 1));
+		assertFalse(packed.contains(500), "Summaries with other layers aren't packed");
+		assertNull(packed.get(1));
+		assertTrue(packed.contains(7));
+	}
+
+	@Test
+	void viewsMatchTheirSources() {
+		ChunkSummary[] summaries = new ChunkSummary[RegionSummary.BITSET_SIZE];
+		summaries[3] = hills;
+		summaries[4] = flooded; // Packs water fields, which hills' views hold as all defaults rather than null
+		PackedRegion packed = PackedRegion.pack(summaries, hills.layerHeights, false);
+		ChunkSummary view = packed.get(3);
+		assertSame(view, packed.get(3), "Views are cached");
+		LayerInterner interner = new LayerInterner();
+		for (int i = 0; i < hills.layers.length; i++) {
+			if (hills.layers[i] == null) continue;
+			assertEquals(hills.layers[i], view.layers[i], "Layer " + i + " should equal its view, including fields held as null");
+			assertEquals(hills.layers[i].hashCode(), view.layers[i].hashCode(), "Layer " + i + " should hash the same as its view");
+			assertSame(interner.intern(hills.layers[i]), interner.intern(view.layers[i]), "Layer " + i + " should be interned with its view");
+		}
+	}
+
+	@Test
+	void packRoundTrip() {
+		assertRoundTrip(false);
+	}
+
+	@Test
+	void packRoundTripDirect() {
+		assertRoundTrip(true);
+	}
+}
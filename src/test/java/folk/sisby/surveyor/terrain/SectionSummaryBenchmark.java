@@ -0,0 +1,73 @@
+package folk.sisby.surveyor.terrain;
+
+import folk.sisby.surveyor.util.MicroBenchmark;
+import net.minecraft.block.BlockState;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.PalettedContainer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures snapshotting and reading every section of a full 24-section chunk. Run with {@code gradlew benchmark}.
+ */
+@Tag("benchmark")
+class SectionSummaryBenchmark {
+	private static final int WARMUP = 200;
+	private static final int ITERATIONS = 1000;
+	/**
+	 * The garbage of unpacking every section into a 4096-entry block array and a 64-entry biome array.
+	 */
+	private static final int UNPACKED_BYTES_PER_CHUNK = TerrainFixtures.SECTIONS * (4096 + 64) * Integer.BYTES;
+
+	private static PalettedContainer<BlockState>[] blocks;
+	private static PalettedContainer<RegistryEntry<Biome>> biomes;
+
+	@BeforeAll
+	static void bootstrap() {
+		TerrainFixtures.bootstrap();
+		blocks = TerrainFixtures.blockContainers(TerrainFixtures::blockAt);
+		biomes = TerrainFixtures.biomeContainer(TerrainFixtures.plains());
+	}
+
+	private static SectionSummary[] snapshot() {
+		SectionSummary[] sections = new SectionSummary[blocks.length];
+		for (int i = 0; i < blocks.length; i++) {
+			sections[i] = SectionSummary.of(blocks[i], biomes);
+		}
+		return sections;
+	}
+
+	/**
+	 * Reads every block in column order, as the scanner does.
+	 */
+	private static int readColumns(SectionSummary[] sections) {
+		int hash = 0;
+		for (int x = 0; x < 16; x++) {
+			for (int z = 0; z < 16; z++) {
+				for (int i = sections.length - 1; i >= 0; i--) {
+					for (int y = 15; y >= 0; y--) {
+						hash += System.identityHashCode(sections[i].getBlockState(x, y, z));
+					}
+				}
+			}
+		}
+		return hash;
+	}
+
+	@Test
+	void snapshotSections() {
+		MicroBenchmark.Result result = MicroBenchmark.run("Section snapshot", WARMUP, ITERATIONS, SectionSummaryBenchmark::snapshot);
+		assertTrue(result.bytesPerOp() < UNPACKED_BYTES_PER_CHUNK, "Snapshotting allocated " + result.bytesPerOp() + " bytes per chunk");
+	}
+
+	@Test
+	void readSections() {
+		SectionSummary[] sections = snapshot();
+		MicroBenchmark.Result result = MicroBenchmark.run("Section column read", WARMUP, ITERATIONS, () -> readColumns(sections));
+		assertTrue(result.bytesPerOp() < 1024, "Reading allocated " + result.bytesPerOp() + " bytes per chunk");
+	}
+}
@@ -0,0 +1,124 @@
+package folk.sisby.surveyor.terrain;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.registry.BuiltinRegistries;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.util.collection.IdList;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.BiomeKeys;
+import net.minecraft.world.chunk.ChunkNibbleArray;
+import net.minecraft.world.chunk.PalettedContainer;
+
+/**
+ * A generated overworld-like chunk for terrain tests and benchmarks, so they don't need a running world.
+ * Rolling grass hills around sea level over stone and deepslate, with a cave, shallow seas, glass and carpets.
+ */
+final class TerrainFixtures {
+	static final int BOTTOM_Y = -64;
+	static final int TOP_Y = 320;
+	static final int SEA_LEVEL = 62;
+	static final int SECTIONS = (TOP_Y - BOTTOM_Y) >> 4;
+	/**
+	 * The summary layers of the overworld, as from {@link DimensionSupport#getSummaryLayers}.
+	 */
+	static final int[] LAYERS = {319, 256, 61, 0, -64};
+	static final CaptureProfile ALL_FIELDS = new CaptureProfile(true, true, true, true, true);
+
+	private static boolean bootstrapped = false;
+
+	private TerrainFixtures() {
+	}
+
+	static synchronized void bootstrap() {
+		if (bootstrapped) return;
+		SharedConstants.createGameVersion();
+		Bootstrap.initialize();
+		bootstrapped = true;
+	}
+
+	static RegistryEntry<Biome> plains() {
+		return BuiltinRegistries.createWrapperLookup().getWrapperOrThrow(RegistryKeys.BIOME).getOrThrow(BiomeKeys.PLAINS);
+	}
+
+	static int height(int x, int z) {
+		return 64 + (x * 7 + z * 13) % 9 - 4;
+	}
+
+	static BlockState blockAt(int x, int y, int z) {
+		int height = height(x, z);
+		if (y > height) {
+			if (y <= SEA_LEVEL) return Blocks.WATER.getDefaultState();
+			if (y == height + 1 && x == 3 && z == 3) return Blocks.GLASS.getDefaultState();
+			if (y == height + 1 && x == 8 && z == 8) return Blocks.WHITE_CARPET.getDefaultState();
+			return Blocks.AIR.getDefaultState();
+		}
+		if (y >= 20 && y <= 24 && x >= 4 && x < 12) return Blocks.CAVE_AIR.getDefaultState();
+		if (y == height) return height < SEA_LEVEL ? Blocks.SAND.getDefaultState() : Blocks.GRASS_BLOCK.getDefaultState();
+		if (y > height - 4) return Blocks.DIRT.getDefaultState();
+		if (y < 0) return Blocks.DEEPSLATE.getDefaultState();
+		return (x + y + z) % 17 == 0 ? Blocks.COAL_ORE.getDefaultState() : Blocks.STONE.getDefaultState();
+	}
+
+	@SuppressWarnings("unchecked")
+	static PalettedContainer<BlockState>[] blockContainers(BlockSource source) {
+		PalettedContainer<BlockState>[] containers = new PalettedContainer[SECTIONS];
+		for (int i = 0; i < SECTIONS; i++) {
+			PalettedContainer<BlockState> container = new PalettedContainer<>(Block.STATE_IDS, Blocks.AIR.getDefaultState(), PalettedContainer.PaletteProvider.BLOCK_STATE);
+			for (int x = 0; x < 16; x++) {
+				for (int y = 0; y < 16; y++) {
+					for (int z = 0; z < 16; z++) {
+						container.set(x, y, z, source.get(x, BOTTOM_Y + (i << 4) + y, z));
+					}
+				}
+			}
+			containers[i] = container;
+		}
+		return containers;
+	}
+
+	static PalettedContainer<RegistryEntry<Biome>> biomeContainer(RegistryEntry<Biome> biome) {
+		IdList<RegistryEntry<Biome>> biomes = new IdList<>();
+		biomes.add(biome);
+		return new PalettedContainer<>(biomes, biome, PalettedContainer.PaletteProvider.BIOME);
+	}
+
+	static SectionSummary[] sections(BlockSource source) {
+		PalettedContainer<BlockState>[] blocks = blockContainers(source);
+		PalettedContainer<RegistryEntry<Biome>> biomes = biomeContainer(plains());
+		SectionSummary[] sections = new SectionSummary[SECTIONS];
+		for (int i = 0; i < SECTIONS; i++) {
+			sections[i] = SectionSummary.of(blocks[i], biomes);
+		}
+		return sections;
+	}
+
+	static ChunkSnapshot snapshot(CaptureProfile profile) {
+		return snapshot(TerrainFixtures::blockAt, profile);
+	}
+
+	static ChunkSnapshot snapshot(BlockSource source, CaptureProfile profile) {
+		int[] surfaceHeights = new int[256];
+		for (int x = 0; x < 16; x++) {
+			for (int z = 0; z < 16; z++) {
+				int y = TOP_Y - 1;
+				while (y >= BOTTOM_Y && source.get(x, y, z).isAir()) y--;
+				surfaceHeights[x * 16 + z] = y + 1;
+			}
+		}
+		byte[] blockLight = new byte[(SECTIONS + 1) * ChunkNibbleArray.BYTES_LENGTH];
+		for (int i = 0; i < blockLight.length; i += 7) {
+			blockLight[i] = (byte) (i % 16 | (i + 3) % 16 << 4);
+		}
+		return new ChunkSnapshot(new ChunkPos(0, 0), BOTTOM_Y, TOP_Y, BOTTOM_Y >> 4, sections(source), blockLight, surfaceHeights, profile, null);
+	}
+
+	interface BlockSource {
+		BlockState get(int x, int y, int z);
+	}
+}
@@ -0,0 +1,174 @@
+package folk.sisby.surveyor.terrain;
+
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.util.math.ChunkPos;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TerrainRegionFileTest {
+	@TempDir
+	File folder;
+
+	/**
+	 * A chunk that deflates to roughly {@code size} bytes, tagged with its bit and version.
+	 */
+	private static NbtCompound chunk(int bit, int version, int size) {
+		NbtCompound nbt = new NbtCompound();
+		nbt.putInt("bit", bit);
+		nbt.putInt("version", version);
+		byte[] noise = new byte[size];
+		new Random(bit * 31L + version).nextBytes(noise);
+		nbt.putByteArray("noise", noise);
+		return nbt;
+	}
+
+	private static IntFunction<NbtCompound> chunks(BitSet present, int version, int size) {
+		return bit -> present.get(bit) ? chunk(bit, version, size) : null;
+	}
+
+	private static BitSet bits(int... bits) {
+		BitSet set = new BitSet(RegionSummary.BITSET_SIZE);
+		for (int bit : bits) {
+			set.set(bit);
+		}
+		return set;
+	}
+
+	private static void assertChunk(TerrainRegionFile region, int bit, @Nullable NbtCompound expected) throws IOException {
+		if (expected == null) {
+			assertFalse(region.contains(bit), "Chunk " + bit + " should be absent");
+			assertNull(region.readChunk(bit));
+		} else {
+			assertTrue(region.contains(bit), "Chunk " + bit + " should be present");
+			assertEquals(expected, region.readChunk(bit), "Chunk " + bit);
+		}
+	}
+
+	@Test
+	void writeThenRead() throws IOException {
+		File file = new File(folder, "c.0.0.sr");
+		BitSet present = bits(0, 1, 31, 500, 1023);
+		TerrainRegionFile.write(file, chunks(present, 0, 700), null, 12, 345);
+		TerrainRegionFile region = TerrainRegionFile.read(file);
+		assertEquals(12, region.biomes());
+		assertEquals(345, region.blocks());
+		for (int bit = 0; bit < RegionSummary.BITSET_SIZE; bit++) {
+			assertChunk(region, bit, present.get(bit) ? chunk(bit, 0, 700) : null);
+		}
+		assertFalse(new File(folder, "c.0.0.sr.tmp").exists(), "The temporary file should be moved into place");
+	}
+
+	@Test
+	void partialWriteAppendsChangedChunks() throws IOException {
+		File file = new File(folder, "c.0.0.sr");
+		TerrainRegionFile.write(file, chunks(bits(0, 1, 2, 3), 0, 700), null, 1, 1);
+		long oldLength = file.length();
+		TerrainRegionFile before = TerrainRegionFile.read(file);
+		IntFunction<NbtCompound> rewritten = bit -> switch (bit) {
+			case 1 -> chunk(1, 1, 100); // Smaller - would fit over the old one
+			case 2 -> chunk(2, 1, 3000); // Larger
+			case 4 -> chunk(4, 1, 700); // New
+			default -> null; // 3 removed
+		};
+		TerrainRegionFile.write(file, rewritten, bits(1, 2, 3, 4), 2, 3);
+		TerrainRegionFile region = TerrainRegionFile.read(file);
+		assertEquals(2, region.biomes());
+		assertEquals(3, region.blocks());
+		assertChunk(region, 0, chunk(0, 0, 700));
+		assertChunk(region, 1, chunk(1, 1, 100));
+		assertChunk(region, 2, chunk(2, 1, 3000));
+		assertChunk(region, 3, null);
+		assertChunk(region, 4, chunk(4, 1, 700));
+		assertEquals(before.sectors[0], region.sectors[0], "Unchanged chunks stay where they were");
+		for (int bit : new int[]{1, 2, 4}) {
+			assertTrue((long) region.sectors[bit] * TerrainRegionFile.SECTOR_BYTES >= oldLength, "Chunk " + bit + " should be appended rather than written over live sectors");
+		}
+	}
+
+	@Test
+	void compactsStaleSectors() throws IOException {
+		File file = new File(folder, "c.0.0.sr");
+		BitSet present = bits(10, 20, 30, 40);
+		TerrainRegionFile.write(file, chunks(present, 0, 2000), null, 1, 1);
+		long fullLength = file.length();
+		for (int version = 1; version <= 10; version++) {
+			file = TerrainRegionFile.write(file, chunks(present, version, 2000), present, 1, 1);
+		}
+		assertTrue(file.length() <= 3 * fullLength, "Rewrites should be compacted, but the file grew from %d to %d bytes".formatted(fullLength, file.length()));
+		TerrainRegionFile region = TerrainRegionFile.read(file);
+		for (int bit = present.nextSetBit(0); bit >= 0; bit = present.nextSetBit(bit + 1)) {
+			assertChunk(region, bit, chunk(bit, 10, 2000));
+		}
+	}
+
+	@Test
+	void unreadableFileIsReplaced() throws IOException {
+		File file = new File(folder, "c.0.0.sr");
+		Files.write(file.toPath(), new byte[TerrainRegionFile.HEADER_BYTES]);
+		file = TerrainRegionFile.write(file, chunks(bits(5, 6), 0, 700), bits(5), 1, 1);
+		TerrainRegionFile region = TerrainRegionFile.read(file);
+		assertChunk(region, 5, chunk(5, 0, 700));
+		assertChunk(region, 6, chunk(6, 0, 700));
+	}
+
+	@Test
+	void tornHeaderFallsBackToThePreviousWrite() throws IOException {
+		File file = new File(folder, "c.0.0.sr");
+		TerrainRegionFile.write(file, chunks(bits(0, 1), 0, 700), null, 1, 1);
+		TerrainRegionFile.write(file, chunks(bits(1), 1, 700), bits(1), 1, 1);
+		TerrainRegionFile newest = TerrainRegionFile.read(file);
+		assertChunk(newest, 1, chunk(1, 1, 700));
+		try (RandomAccessFile access = new RandomAccessFile(file, "rw")) { // Tear the newest slot's entry for chunk 1
+			access.seek((long) newest.slot * TerrainRegionFile.SLOT_SECTORS * TerrainRegionFile.SECTOR_BYTES + TerrainRegionFile.SLOT_CHUNKS_OFFSET + 2 * Integer.BYTES);
+			access.writeInt(12345);
+		}
+		TerrainRegionFile region = TerrainRegionFile.read(file);
+		assertEquals(newest.revision - 1, region.revision);
+		assertChunk(region, 0, chunk(0, 0, 700));
+		assertChunk(region, 1, chunk(1, 0, 700));
+	}
+
+	@Test
+	void mappedFileStaysValidAcrossWrites() throws IOException {
+		File file = new File(folder, "c.0.0.sr");
+		TerrainRegionFile.write(file, chunks(bits(3, 300, 700), 0, 700), null, 1, 1);
+		TerrainRegionFile mapped = TerrainRegionFile.map(file);
+		assertEquals(file, TerrainRegionFile.write(file, chunks(bits(300), 1, 700), bits(300), 1, 1), "Partial writes stay in the same file");
+		for (int bit : new int[]{3, 300, 700}) {
+			assertChunk(mapped, bit, chunk(bit, 0, 700));
+		}
+		TerrainRegionFile remapped = TerrainRegionFile.map(file);
+		assertChunk(remapped, 3, chunk(3, 0, 700));
+		assertChunk(remapped, 300, chunk(300, 1, 700));
+	}
+
+	@Test
+	void wholeRewritesGoToTheNextGeneration() throws IOException {
+		File file = new File(folder, "c.0.0.sr");
+		TerrainRegionFile.write(file, chunks(bits(1), 0, 700), null, 1, 1);
+		File next = TerrainRegionFile.write(file, chunks(bits(1, 2), 1, 700), null, 1, 1);
+		assertEquals(new File(folder, "c.0.0.1.sr"), next);
+		assertEquals(1, TerrainRegionFile.generation(next));
+		Files.copy(next.toPath(), file.toPath()); // As if the old generation couldn't be deleted while mapped
+		assertEquals(Map.of(new ChunkPos(0, 0), next), TerrainRegionFile.list(folder));
+		assertFalse(file.exists(), "Listing deletes older generations");
+		TerrainRegionFile region = TerrainRegionFile.map(next);
+		assertChunk(region, 1, chunk(1, 1, 700));
+		assertChunk(region, 2, chunk(2, 1, 700));
+	}
+}
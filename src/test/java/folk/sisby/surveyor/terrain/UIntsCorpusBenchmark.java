@@ -0,0 +1,160 @@
+package folk.sisby.surveyor.terrain;
+
+import folk.sisby.surveyor.util.MicroBenchmark;
+import folk.sisby.surveyor.util.uints.UDictArray;
+import folk.sisby.surveyor.util.uints.UInts;
+import folk.sisby.surveyor.util.uints.URunArray;
+import io.netty.buffer.Unpooled;
+import net.minecraft.block.BlockState;
+import net.minecraft.block.Blocks;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.registry.Registries;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the plain, run-length and dictionary encodings over a corpus of layer fields, reporting their encoded size and decode speed.
+ * Reads the corpus from the region files in {@code -Pcorpus=<world>/data/surveyor} (or any dimension's surveyor folder) if given, otherwise from generated oceans, deserts, hills and noise.
+ * Run with {@code gradlew benchmark}.
+ */
+@Tag("benchmark")
+class UIntsCorpusBenchmark {
+	private static final int WARMUP = 50;
+	private static final int ITERATIONS = 200;
+	private static final BlockState[] NOISE_BLOCKS = {Blocks.STONE.getDefaultState(), Blocks.DIRT.getDefaultState(), Blocks.GRAVEL.getDefaultState(), Blocks.ANDESITE.getDefaultState(), Blocks.DIORITE.getDefaultState(), Blocks.GRANITE.getDefaultState(), Blocks.TUFF.getDefaultState(), Blocks.CLAY.getDefaultState(), Blocks.MOSS_BLOCK.getDefaultState(), Blocks.OAK_LOG.getDefaultState(), Blocks.OAK_LEAVES.getDefaultState(), Blocks.SNOW_BLOCK.getDefaultState(), Blocks.ICE.getDefaultState(), Blocks.PODZOL.getDefaultState(), Blocks.MYCELIUM.getDefaultState(), Blocks.TERRACOTTA.getDefaultState(), Blocks.RED_SAND.getDefaultState(), Blocks.COBBLESTONE.getDefaultState(), Blocks.MOSSY_COBBLESTONE.getDefaultState(), Blocks.BASALT.getDefaultState()};
+
+	private static final List<int[]> corpus = new ArrayList<>();
+
+	@BeforeAll
+	static void readCorpus() throws IOException {
+		TerrainFixtures.bootstrap();
+		String folder = System.getProperty("surveyor.corpus");
+		if (folder != null && !folder.isEmpty()) {
+			File[] files = new File(folder).listFiles((dir, name) -> name.startsWith(TerrainRegionFile.PREFIX + ".") && name.endsWith("." + TerrainRegionFile.EXTENSION));
+			if (files == null) throw new IOException("Couldn't list corpus folder " + folder);
+			for (File file : files) {
+				TerrainRegionFile region = TerrainRegionFile.read(file);
+				for (int bit = 0; bit < RegionSummary.BITSET_SIZE; bit++) {
+					NbtCompound chunk = region.readChunk(bit);
+					if (chunk != null) addFields(new ChunkSummary(chunk));
+				}
+			}
+			System.out.printf("Read %d layer fields from %d region files in %s%n", corpus.size(), files.length, folder);
+		} else {
+			addFields(summarise(TerrainFixtures::blockAt));
+			addFields(summarise(UIntsCorpusBenchmark::oceanBlockAt));
+			addFields(summarise(UIntsCorpusBenchmark::desertBlockAt));
+			addFields(summarise(UIntsCorpusBenchmark::noiseBlockAt));
+			System.out.printf("Generated %d layer fields - pass -Pcorpus=<folder of .sr region files> to read real terrain%n", corpus.size());
+		}
+		assertFalse(corpus.isEmpty(), "The corpus holds no layer fields");
+	}
+
+	private static ChunkSummary summarise(TerrainFixtures.BlockSource source) {
+		return new ChunkSummary(TerrainFixtures.snapshot(source, TerrainFixtures.ALL_FIELDS), null, TerrainFixtures.LAYERS, biome -> 0, Registries.BLOCK::getRawId);
+	}
+
+	private static BlockState oceanBlockAt(int x, int y, int z) {
+		if (y <= 30 + (x + z) % 3) return y < 0 ? Blocks.DEEPSLATE.getDefaultState() : Blocks.GRAVEL.getDefaultState();
+		return y <= TerrainFixtures.SEA_LEVEL ? Blocks.WATER.getDefaultState() : Blocks.AIR.getDefaultState();
+	}
+
+	private static BlockState desertBlockAt(int x, int y, int z) {
+		int height = 70 + (x * 3 + z * 5) % 4;
+		if (y > height) return x == 6 && z == 9 && y <= height + 3 ? Blocks.CACTUS.getDefaultState() : Blocks.AIR.getDefaultState();
+		if (y > height - 4) return Blocks.SAND.getDefaultState();
+		return y > height - 8 ? Blocks.SANDSTONE.getDefaultState() : Blocks.STONE.getDefaultState();
+	}
+
+	private static BlockState noiseBlockAt(int x, int y, int z) {
+		Random random = new Random(x * 341873128712L + z * 132897987541L);
+		int height = 60 + random.nextInt(40);
+		if (y > height) return Blocks.AIR.getDefaultState();
+		return NOISE_BLOCKS[new Random(random.nextLong() + y).nextInt(NOISE_BLOCKS.length)];
+	}
+
+	private static void addFields(ChunkSummary summary) {
+		for (LayerSummary layer : summary.layers) {
+			if (layer == null) continue;
+			int cardinality = layer.found.cardinality();
+			for (UInts field : Arrays.asList(layer.depth, layer.biome, layer.block, layer.light, layer.water, layer.glint)) {
+				if (field == null) continue;
+				int[] values = new int[cardinality];
+				field.decodeInto(values, 0, cardinality);
+				corpus.add(values);
+			}
+		}
+	}
+
+	private static int[] distinct(int[] values) {
+		return Arrays.stream(values).distinct().toArray();
+	}
+
+	private static List<UInts> encode(Function<int[], UInts> encoding) {
+		List<UInts> encoded = new ArrayList<>(corpus.size());
+		for (int[] values : corpus) {
+			encoded.add(encoding.apply(values));
+		}
+		return encoded;
+	}
+
+	private static long encodedBytes(List<UInts> encoded) {
+		PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+		for (UInts uints : encoded) {
+			UInts.writeBuf(uints, buf);
+		}
+		return buf.readableBytes();
+	}
+
+	/**
+	 * Prints the encoding's size over the corpus, checks it decodes back to the corpus, and times decoding the whole corpus.
+	 */
+	private static long measure(String name, List<UInts> encoded) {
+		long bytes = encodedBytes(encoded);
+		System.out.printf("%s: %d bytes over %d fields%n", name, bytes, encoded.size());
+		int[] buffer = new int[RegionSummary.BITSET_SIZE];
+		for (int i = 0; i < encoded.size(); i++) {
+			int[] values = corpus.get(i);
+			encoded.get(i).decodeInto(buffer, 0, values.length);
+			assertArrayEquals(values, Arrays.copyOf(buffer, values.length), name + " decoded field " + i + " differently");
+		}
+		MicroBenchmark.run(name + " decode", WARMUP, ITERATIONS, () -> {
+			for (int i = 0; i < encoded.size(); i++) {
+				encoded.get(i).decodeInto(buffer, 0, corpus.get(i).length);
+			}
+			return buffer;
+		});
+		return bytes;
+	}
+
+	@Test
+	void compareEncodings() {
+		long plain = measure("Plain", encode(UInts::ofPlain));
+		measure("Run-length", encode(URunArray::ofInts));
+		List<int[]> dictionaries = corpus.stream().map(UIntsCorpusBenchmark::distinct).toList();
+		long fitting = dictionaries.stream().filter(d -> d.length <= UInts.MAX_DICTIONARY).count();
+		System.out.printf("%d of %d fields hold at most %d distinct values%n", fitting, corpus.size(), UInts.MAX_DICTIONARY);
+		List<UInts> dictionaryEncoded = new ArrayList<>(corpus.size());
+		for (int i = 0; i < corpus.size(); i++) {
+			int[] dictionary = dictionaries.get(i);
+			dictionaryEncoded.add(dictionary.length <= UInts.MAX_DICTIONARY ? UDictArray.ofInts(corpus.get(i), dictionary) : UInts.ofPlain(corpus.get(i)));
+		}
+		measure("Dictionary (or plain)", dictionaryEncoded);
+		long chosen = measure("Chosen", encode(UInts::ofMany));
+		assertTrue(chosen <= plain, "Choosing encodings took %d bytes, more than %d for plain arrays".formatted(chosen, plain));
+	}
+}
@@ -0,0 +1,46 @@
+package folk.sisby.surveyor.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.function.Supplier;
+
+/**
+ * A minimal timing and allocation harness for the micro-benchmarks run by the {@code benchmark} task.
+ * Allocation is read from the current thread's allocation counter, so operations must run on the calling thread.
+ */
+public final class MicroBenchmark {
+	private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+	private static volatile int sink;
+
+	private MicroBenchmark() {
+	}
+
+	/**
+	 * Runs an operation for the given number of warmup and measured iterations, and prints the measured cost.
+	 */
+	public static Result run(String name, int warmup, int iterations, Supplier<?> operation) {
+		for (int i = 0; i < warmup; i++) {
+			consume(operation.get());
+		}
+		long startBytes = THREADS.getCurrentThreadAllocatedBytes();
+		long startNanos = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			consume(operation.get());
+		}
+		long nanos = System.nanoTime() - startNanos;
+		long bytes = THREADS.getCurrentThreadAllocatedBytes() - startBytes;
+		Result result = new Result(name, (double) nanos / iterations, (double) bytes / iterations);
+		System.out.println(result);
+		return result;
+	}
+
+	private static void consume(Object value) {
+		sink += System.identityHashCode(value);
+	}
+
+	public record Result(String name, double nanosPerOp, double bytesPerOp) {
+		@Override
+		public String toString() {
+			return "%s: %.1f us/op, %.0f bytes/op".formatted(name, nanosPerOp / 1000, bytesPerOp);
+		}
+	}
+}
@@ -0,0 +1,56 @@
+package folk.sisby.surveyor.util;
+
+import folk.sisby.surveyor.terrain.RegionSummary;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.block.Block;
+import net.minecraft.block.Blocks;
+import net.minecraft.nbt.NbtList;
+import net.minecraft.nbt.NbtString;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.Identifier;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RegistryPaletteTest {
+	private static final Identifier MISSING = new Identifier("removed_mod", "marble");
+
+	@BeforeAll
+	static void bootstrap() {
+		SharedConstants.createGameVersion();
+		Bootstrap.initialize();
+	}
+
+	private static NbtList ids(Identifier... ids) {
+		NbtList list = new NbtList();
+		for (Identifier id : ids) {
+			list.add(NbtString.of(id.toString()));
+		}
+		return list;
+	}
+
+	@Test
+	void loadKeepsSavedIndices() {
+		RegistryPalette<Block> palette = new RegistryPalette<>(Registries.BLOCK);
+		RegionSummary.loadPalette(ids(Registries.BLOCK.getId(Blocks.STONE), MISSING, Registries.BLOCK.getId(Blocks.AIR), Registries.BLOCK.getId(Blocks.DIRT)), Registries.BLOCK, Blocks.AIR, palette, "block", "test");
+		assertEquals(4, palette.view().size());
+		assertEquals(Blocks.STONE, palette.view().get(0));
+		assertEquals(Blocks.AIR, palette.view().get(1), "Missing entries show the fallback");
+		assertEquals(Blocks.AIR, palette.view().get(2));
+		assertEquals(Blocks.DIRT, palette.view().get(3), "Entries after a missing one keep their index");
+		assertEquals(MISSING, palette.savedId(1), "Missing entries are saved under their old identifier");
+		assertNull(palette.savedId(2));
+	}
+
+	@Test
+	void placeholdersAreNeverFound() {
+		RegistryPalette<Block> palette = new RegistryPalette<>(Registries.BLOCK);
+		assertEquals(0, palette.addPlaceholder(Blocks.AIR, MISSING));
+		assertEquals(-1, palette.find(Registries.BLOCK.getRawId(Blocks.AIR)));
+		assertEquals(1, palette.findOrAdd(Blocks.AIR), "New terrain gets its own index, rather than the placeholder's");
+		assertEquals(1, palette.view().getRawId(Blocks.AIR));
+	}
+}
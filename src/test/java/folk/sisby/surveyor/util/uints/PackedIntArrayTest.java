@@ -0,0 +1,90 @@
+package folk.sisby.surveyor.util.uints;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PackedIntArrayTest {
+	private static final int SIZE = 256;
+
+	private static int[] values(int bits, long seed) {
+		Random random = new Random(seed);
+		int[] values = new int[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			values[i] = bits == Integer.SIZE ? random.nextInt() : random.nextInt(1 << bits);
+		}
+		return values;
+	}
+
+	private static int[] decode(PackedIntArray array) {
+		int[] decoded = new int[array.size()];
+		array.decode(0, decoded, 0, array.size());
+		return decoded;
+	}
+
+	@Test
+	void roundTripEveryWidth() {
+		for (int bits = 1; bits <= Integer.SIZE; bits++) {
+			int[] values = values(bits, bits);
+			PackedIntArray array = PackedIntArray.of(values, SIZE, bits);
+			assertEquals(PackedIntArray.dataLength(SIZE, bits), array.data().length);
+			assertArrayEquals(values, decode(array), "Decoding " + bits + " bit values");
+			for (int i = 0; i < SIZE; i++) {
+				assertEquals(values[i], array.get(i), "Getting " + bits + " bit value " + i);
+			}
+			PackedIntArray wrapped = PackedIntArray.wrap(array.data(), bits, SIZE);
+			assertArrayEquals(values, decode(wrapped), "Decoding wrapped " + bits + " bit values");
+		}
+	}
+
+	@Test
+	void decodeFromOffset() {
+		int[] values = values(7, 0);
+		PackedIntArray array = PackedIntArray.of(values, SIZE, 7);
+		int[] decoded = new int[100];
+		array.decode(37, decoded, 0, 100);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(values[37 + i], decoded[i]);
+		}
+	}
+
+	@Test
+	void ofUsesTheWidestValue() {
+		int[] values = {0, 3, 1, 5, 2};
+		PackedIntArray array = PackedIntArray.of(values, values.length);
+		assertEquals(3, array.bits());
+		assertArrayEquals(values, decode(array));
+	}
+
+	@Test
+	void packIntoTruncatesWideValues() {
+		int[] values = {0b1111, 0, 0b1010, -1, 0};
+		PackedIntArray array = PackedIntArray.of(values, values.length, 2);
+		assertArrayEquals(new int[]{0b11, 0, 0b10, 0b11, 0}, decode(array), "Wide values mustn't spill into their neighbours");
+	}
+
+	@Test
+	void packIntoDirectBuffer() {
+		int[] values = values(11, 11);
+		LongBuffer direct = ByteBuffer.allocateDirect(PackedIntArray.dataLength(SIZE, 11) * Long.BYTES).asLongBuffer();
+		PackedIntArray array = PackedIntArray.packInto(direct, values, SIZE, 11);
+		assertArrayEquals(values, decode(array));
+		assertArrayEquals(PackedIntArray.of(values, SIZE, 11).data(), array.data());
+	}
+
+	@Test
+	void setOverwritesOnlyItsValue() {
+		int[] values = values(13, 13);
+		PackedIntArray array = PackedIntArray.of(values, SIZE, 13);
+		for (int i = 0; i < SIZE; i += 5) {
+			values[i] = (values[i] * 31 + 7) & 0x1FFF;
+			array.set(i, values[i]);
+		}
+		assertArrayEquals(values, decode(array));
+	}
+}
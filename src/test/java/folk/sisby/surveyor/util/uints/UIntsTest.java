@@ -0,0 +1,207 @@
+package folk.sisby.surveyor.util.uints;
+
+import io.netty.buffer.Unpooled;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.network.PacketByteBuf;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class UIntsTest {
+	private static final int CARDINALITY = 200;
+	private static final int[] ALPHABET = {3, 900, 70000};
+
+	private static int[] values(IntUnaryOperator generator) {
+		int[] values = new int[CARDINALITY];
+		for (int i = 0; i < CARDINALITY; i++) {
+			values[i] = generator.applyAsInt(i);
+		}
+		return values;
+	}
+
+	/**
+	 * Values for every plain width, plus long runs and a small alphabet.
+	 */
+	private static Map<String, int[]> corpus() {
+		Random random = new Random(0);
+		Map<String, int[]> corpus = new LinkedHashMap<>();
+		corpus.put("nibbles", values(i -> random.nextInt(1 << 4)));
+		corpus.put("five bits", values(i -> random.nextInt(1 << 5)));
+		corpus.put("bytes", values(i -> random.nextInt(1 << 8)));
+		corpus.put("shorts", values(i -> random.nextInt(1 << 16)));
+		corpus.put("ints", values(i -> random.nextInt()));
+		corpus.put("runs", values(i -> i / 40 * 7));
+		corpus.put("alphabet", values(i -> ALPHABET[random.nextInt(ALPHABET.length)]));
+		return corpus;
+	}
+
+	/**
+	 * Freshly encodes the values every way they can be, as remapping may rewrite an encoding in place.
+	 */
+	private static Map<String, UInts> encodings(int[] values) {
+		int or = 0;
+		for (int value : values) {
+			or |= value;
+		}
+		Map<String, UInts> encodings = new LinkedHashMap<>();
+		encodings.put("plain", UInts.ofPlain(values));
+		encodings.put("bits", UBitArray.ofInts(values, PackedIntArray.bitsFor(or)));
+		encodings.put("runs", URunArray.ofInts(values));
+		int[] dictionary = Arrays.stream(values).distinct().toArray();
+		if (dictionary.length <= UInts.MAX_DICTIONARY) encodings.put("dictionary", UDictArray.ofInts(values, dictionary));
+		encodings.put("chosen", UInts.ofMany(values));
+		encodings.put("packed view", new PackedUInts(PackedIntArray.of(values, values.length), 0, values.length, 0));
+		return encodings;
+	}
+
+	private static int[] decode(@Nullable UInts uints, int cardinality) {
+		int[] decoded = new int[cardinality];
+		UInts.decodeInto(uints, 0, decoded, cardinality);
+		return decoded;
+	}
+
+	/**
+	 * A mask of {@link #CARDINALITY} of the 256 columns, with gaps, as a layer's found columns.
+	 */
+	private static BitSet mask() {
+		BitSet mask = new BitSet(256);
+		for (int bit = 0; mask.cardinality() < CARDINALITY; bit++) {
+			if (bit % 5 != 2) mask.set(bit);
+		}
+		return mask;
+	}
+
+	@Test
+	void nbtRoundTrip() {
+		corpus().forEach((corpusName, values) -> encodings(values).forEach((encoding, uints) -> {
+			NbtCompound nbt = new NbtCompound();
+			uints.writeNbt(nbt, "uints");
+			assertArrayEquals(values, decode(UInts.readNbt(nbt.get("uints"), CARDINALITY), CARDINALITY), "NBT round trip of %s encoded as %s".formatted(corpusName, encoding));
+		}));
+	}
+
+	@Test
+	void dictionaryAndRunsWriteTheirOwnTags() {
+		int[] values = corpus().get("alphabet");
+		for (UInts uints : List.of(UDictArray.ofInts(values, ALPHABET.clone()), URunArray.ofInts(corpus().get("runs")))) {
+			NbtCompound nbt = new NbtCompound();
+			uints.writeNbt(nbt, "uints");
+			assertEquals(uints.getType(), nbt.get("uints").getType(), "%s should be written as the tag it's read by".formatted(uints.getClass().getSimpleName()));
+		}
+	}
+
+	@Test
+	void bufRoundTrip() {
+		corpus().forEach((corpusName, values) -> encodings(values).forEach((encoding, uints) -> {
+			PacketByteBuf buf = new PacketByteBuf(Unpooled.buffer());
+			UInts.writeBuf(uints, buf);
+			assertArrayEquals(values, decode(UInts.readBuf(buf, CARDINALITY), CARDINALITY), "Buf round trip of %s encoded as %s".formatted(corpusName, encoding));
+			assertEquals(0, buf.readableBytes(), "Reading %s encoded as %s left bytes behind".formatted(corpusName, encoding));
+		}));
+	}
+
+	@Test
+	void decodeIntoMatchesGet() {
+		corpus().forEach((corpusName, values) -> encodings(values).forEach((encoding, uints) -> {
+			int[] dst = new int[CARDINALITY + 10];
+			Arrays.fill(dst, -7);
+			uints.decodeInto(dst, 10, CARDINALITY);
+			for (int i = 0; i < 10; i++) {
+				assertEquals(-7, dst[i], "Decoding %s encoded as %s wrote before the offset".formatted(corpusName, encoding));
+			}
+			for (int i = 0; i < CARDINALITY; i++) {
+				assertEquals(values[i], dst[10 + i], "Decoding %s encoded as %s at %d".formatted(corpusName, encoding, i));
+				assertEquals(values[i], uints.get(i), "Getting %s encoded as %s at %d".formatted(corpusName, encoding, i));
+			}
+		}));
+	}
+
+	@Test
+	void scatterIntoFillsOnlyMaskedColumns() {
+		BitSet mask = mask();
+		corpus().forEach((corpusName, values) -> encodings(values).forEach((encoding, uints) -> {
+			int[] expected = new int[256];
+			Arrays.fill(expected, -7);
+			int i = 0;
+			for (int bit = mask.nextSetBit(0); bit >= 0; bit = mask.nextSetBit(bit + 1)) {
+				expected[bit] = values[i++];
+			}
+			int[] dst = new int[256];
+			Arrays.fill(dst, -7);
+			uints.scatterInto(mask, dst);
+			assertArrayEquals(expected, dst, "Scattering %s encoded as %s".formatted(corpusName, encoding));
+			assertArrayEquals(Arrays.stream(expected).map(v -> v == -7 ? 0 : v).toArray(), Arrays.copyOf(uints.getUnmasked(mask), 256), "Unmasking %s encoded as %s".formatted(corpusName, encoding));
+		}));
+	}
+
+	@Test
+	void singleValuesFillEveryColumn() {
+		BitSet mask = mask();
+		for (int value : new int[]{200, 60000, 70000}) {
+			UInts single = UInts.ofSingle(value, 0);
+			assertArrayEquals(values(i -> value), decode(single, CARDINALITY));
+			int[] dst = new int[256];
+			single.scatterInto(mask, dst);
+			for (int bit = 0; bit < 256; bit++) {
+				assertEquals(mask.get(bit) ? value : 0, dst[bit]);
+			}
+		}
+	}
+
+	@Test
+	void remapMatchesMappedValues() {
+		List<IntUnaryOperator> remappings = List.of(v -> v + 1, v -> v % 3, v -> 70000 - (v & 0xFFF), v -> 0);
+		corpus().forEach((corpusName, values) -> {
+			for (IntUnaryOperator remapping : remappings) {
+				int[] expected = Arrays.stream(values).map(remapping).toArray();
+				encodings(values).forEach((encoding, uints) -> {
+					UInts remapped = UInts.remap(uints, remapping, 0, CARDINALITY);
+					assertArrayEquals(expected, decode(remapped, CARDINALITY), "Remapping %s encoded as %s".formatted(corpusName, encoding));
+				});
+			}
+		});
+	}
+
+	@Test
+	void remapSingleValues() {
+		assertArrayEquals(values(i -> 5), decode(UInts.remap(null, v -> v + 5, 0, CARDINALITY), CARDINALITY), "Null uints remap from the default");
+		assertArrayEquals(values(i -> 70000), decode(UInts.remap(UInts.ofSingle(300, 0), v -> v * 1000 / 300 * 70, 0, CARDINALITY), CARDINALITY));
+		assertNull(UInts.remap(UInts.ofSingle(300, 0), v -> 0, 0, CARDINALITY), "Remapping to the default leaves no uints");
+	}
+
+	@Test
+	void remapInPlaceWhenValuesFit() {
+		int[] values = corpus().get("five bits");
+		UInts bits = UBitArray.ofInts(values, 5);
+		assertSame(bits, bits.remap(v -> 31 - v, 0, CARDINALITY));
+		assertArrayEquals(Arrays.stream(values).map(v -> 31 - v).toArray(), decode(bits, CARDINALITY));
+		UInts dictionary = UDictArray.ofInts(corpus().get("alphabet"), ALPHABET.clone());
+		assertSame(dictionary, dictionary.remap(v -> v + 1, 0, CARDINALITY));
+	}
+
+	@Test
+	void lookupMapsOnlyGivenValues() {
+		Int2IntMap remap = new Int2IntOpenHashMap();
+		remap.put(2, 7);
+		remap.put(5, 1);
+		IntUnaryOperator lookup = UInts.lookup(remap);
+		assertEquals(7, lookup.applyAsInt(2));
+		assertEquals(1, lookup.applyAsInt(5));
+		assertEquals(3, lookup.applyAsInt(3));
+		assertEquals(100, lookup.applyAsInt(100));
+	}
+}